@@ -1,14 +1,18 @@
 package com.mishiranu.dashchan.chan.dvach;
 
 import android.content.res.Resources;
+import android.os.SystemClock;
 import android.util.Pair;
 
 import chan.content.ChanConfiguration;
 import chan.util.CommonUtils;
 import chan.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -41,6 +45,7 @@ public class DvachChanConfiguration extends ChanConfiguration {
 	private static final String KEY_LIKES_ENABLED = "likes_enabled";
 
 	private static final String KEY_CAPTCHA_FULL_KEYBOARD = "captcha_full_keyboard";
+	private static final String KEY_ARCHIVE_READ_AHEAD = "archive_read_ahead";
 	private static final int CAPTCHA_TTL = 90;
 
 	public DvachChanConfiguration() {
@@ -55,6 +60,7 @@ public class DvachChanConfiguration extends ChanConfiguration {
 			addCaptchaType(captchaType);
 		}
 		addCustomPreference(KEY_CAPTCHA_FULL_KEYBOARD, false);
+		addCustomPreference(KEY_ARCHIVE_READ_AHEAD, true);
 	}
 
 	@Override
@@ -106,17 +112,7 @@ public class DvachChanConfiguration extends ChanConfiguration {
 		posting.attachmentMimeTypes.add("image/*");
 		posting.attachmentMimeTypes.add("video/webm");
 		posting.attachmentMimeTypes.add("video/mp4");
-		try {
-			JSONArray jsonArray = new JSONArray(get(boardName, KEY_ICONS, "[]"));
-			for (int i = 0; i < jsonArray.length(); i++) {
-				JSONObject jsonObject = jsonArray.getJSONObject(i);
-				String name = CommonUtils.getJsonString(jsonObject, "name");
-				int num = jsonObject.getInt("num");
-				posting.userIcons.add(new Pair<>(Integer.toString(num), name));
-			}
-		} catch (Exception e) {
-			// Ignore exception
-		}
+		posting.userIcons.addAll(obtainUserIcons(boardName));
 		posting.hasCountryFlags = get(boardName, KEY_FLAGS_ENABLED, false);
 		return posting;
 	}
@@ -165,42 +161,128 @@ public class DvachChanConfiguration extends ChanConfiguration {
 		}
 	}
 
+	private static final int BOARD_SNAPSHOT_TTL = 10 * 60 * 1000;
+
+	private static class BoardSnapshot {
+		public final DvachModelMapper.BoardConfiguration configuration;
+		public final long time;
+
+		public BoardSnapshot(DvachModelMapper.BoardConfiguration configuration, long time) {
+			this.configuration = configuration;
+			this.time = time;
+		}
+	}
+
+	private final HashMap<String, BoardSnapshot> boardSnapshots = new HashMap<>();
+	private final HashMap<String, List<Pair<String, String>>> userIcons = new HashMap<>();
+
 	public void updateFromThreadsPostsJson(String boardName, DvachModelMapper.BoardConfiguration configuration) {
-		String description = transformBoardDescription(configuration.description);
-		if (!StringUtils.isEmpty(configuration.title)) {
-			storeBoardTitle(boardName, configuration.title);
+		long time = SystemClock.elapsedRealtime();
+		DvachModelMapper.BoardConfiguration previous = null;
+		synchronized (boardSnapshots) {
+			BoardSnapshot snapshot = boardSnapshots.get(boardName);
+			if (snapshot != null && time - snapshot.time < BOARD_SNAPSHOT_TTL) {
+				// Only the values which differ from the last stored ones will be written
+				previous = snapshot.configuration;
+				boardSnapshots.put(boardName, new BoardSnapshot(configuration, snapshot.time));
+			} else {
+				boardSnapshots.put(boardName, new BoardSnapshot(configuration, time));
+			}
 		}
-		if (!StringUtils.isEmpty(description)) {
-			storeBoardDescription(boardName, description);
+		if (previous == null || !CommonUtils.equals(previous.title, configuration.title)) {
+			if (!StringUtils.isEmpty(configuration.title)) {
+				storeBoardTitle(boardName, configuration.title);
+			}
 		}
-		if (!StringUtils.isEmpty(configuration.defaultName)) {
-			storeDefaultName(boardName, configuration.defaultName);
+		if (previous == null || !CommonUtils.equals(previous.description, configuration.description)) {
+			String description = transformBoardDescription(configuration.description);
+			if (!StringUtils.isEmpty(description)) {
+				storeBoardDescription(boardName, description);
+			}
 		}
-		if (configuration.bumpLimit > 0) {
-			storeBumpLimit(boardName, configuration.bumpLimit);
+		if (previous == null || !CommonUtils.equals(previous.defaultName, configuration.defaultName)) {
+			if (!StringUtils.isEmpty(configuration.defaultName)) {
+				storeDefaultName(boardName, configuration.defaultName);
+			}
 		}
-		if (configuration.maxCommentLength > 0) {
-			set(boardName, KEY_MAX_COMMENT_LENGTH, configuration.maxCommentLength);
+		if (previous == null || previous.bumpLimit != configuration.bumpLimit) {
+			if (configuration.bumpLimit > 0) {
+				storeBumpLimit(boardName, configuration.bumpLimit);
+			}
 		}
-		editBoards(boardName, KEY_IMAGES_ENABLED, configuration.imagesEnabled);
-		editBoards(boardName, KEY_NAMES_ENABLED, configuration.namesEnabled);
-		editBoards(boardName, KEY_TRIPCODES_ENABLED, configuration.tripcodesEnabled);
-		editBoards(boardName, KEY_SUBJECTS_ENABLED, configuration.subjectsEnabled);
-		editBoards(boardName, KEY_SAGE_ENABLED, configuration.sageEnabled);
-		editBoards(boardName, KEY_FLAGS_ENABLED, configuration.flagsEnabled);
-		editBoards(boardName, KEY_LIKES_ENABLED, configuration.likesEnabled);
-		if (configuration.pagesCount > 0) {
-			storePagesCount(boardName, configuration.pagesCount);
+		if (previous == null || previous.maxCommentLength != configuration.maxCommentLength) {
+			if (configuration.maxCommentLength > 0) {
+				set(boardName, KEY_MAX_COMMENT_LENGTH, configuration.maxCommentLength);
+			}
+		}
+		editBoards(boardName, KEY_IMAGES_ENABLED, previous != null ? previous.imagesEnabled : null,
+				configuration.imagesEnabled);
+		editBoards(boardName, KEY_NAMES_ENABLED, previous != null ? previous.namesEnabled : null,
+				configuration.namesEnabled);
+		editBoards(boardName, KEY_TRIPCODES_ENABLED, previous != null ? previous.tripcodesEnabled : null,
+				configuration.tripcodesEnabled);
+		editBoards(boardName, KEY_SUBJECTS_ENABLED, previous != null ? previous.subjectsEnabled : null,
+				configuration.subjectsEnabled);
+		editBoards(boardName, KEY_SAGE_ENABLED, previous != null ? previous.sageEnabled : null,
+				configuration.sageEnabled);
+		editBoards(boardName, KEY_FLAGS_ENABLED, previous != null ? previous.flagsEnabled : null,
+				configuration.flagsEnabled);
+		editBoards(boardName, KEY_LIKES_ENABLED, previous != null ? previous.likesEnabled : null,
+				configuration.likesEnabled);
+		if (previous == null || previous.pagesCount != configuration.pagesCount) {
+			if (configuration.pagesCount > 0) {
+				storePagesCount(boardName, configuration.pagesCount);
+			}
+		}
+		if (previous == null || !CommonUtils.equals(previous.icons, configuration.icons)) {
+			String icons = "[]".equals(configuration.icons) ? null : configuration.icons;
+			set(boardName, KEY_ICONS, icons);
+			List<Pair<String, String>> userIcons = parseUserIcons(icons);
+			synchronized (this.userIcons) {
+				this.userIcons.put(boardName, userIcons);
+			}
 		}
-		set(boardName, KEY_ICONS, "[]".equals(configuration.icons) ? null : configuration.icons);
 	}
 
-	private void editBoards(String boardName, String key, Boolean value) {
-		if (value != null) {
+	private void editBoards(String boardName, String key, Boolean previous, Boolean value) {
+		if (value != null && !value.equals(previous)) {
 			set(boardName, key, value);
 		}
 	}
 
+	private List<Pair<String, String>> obtainUserIcons(String boardName) {
+		List<Pair<String, String>> userIcons;
+		synchronized (this.userIcons) {
+			userIcons = this.userIcons.get(boardName);
+		}
+		if (userIcons == null) {
+			userIcons = parseUserIcons(get(boardName, KEY_ICONS, null));
+			synchronized (this.userIcons) {
+				this.userIcons.put(boardName, userIcons);
+			}
+		}
+		return userIcons;
+	}
+
+	private static List<Pair<String, String>> parseUserIcons(String icons) {
+		if (StringUtils.isEmpty(icons)) {
+			return Collections.emptyList();
+		}
+		ArrayList<Pair<String, String>> userIcons = new ArrayList<>();
+		try {
+			JSONArray jsonArray = new JSONArray(icons);
+			for (int i = 0; i < jsonArray.length(); i++) {
+				JSONObject jsonObject = jsonArray.getJSONObject(i);
+				String name = CommonUtils.getJsonString(jsonObject, "name");
+				int num = jsonObject.getInt("num");
+				userIcons.add(new Pair<>(Integer.toString(num), name));
+			}
+		} catch (Exception e) {
+			// Ignore exception
+		}
+		return Collections.unmodifiableList(userIcons);
+	}
+
 	public String transformBoardDescription(String description) {
 		description = StringUtils.nullIfEmpty(StringUtils.clearHtml(description).trim());
 		if (description != null) {
@@ -223,6 +305,12 @@ public class DvachChanConfiguration extends ChanConfiguration {
 			CustomPreference captchaFullKeyboardPreference = new CustomPreference();
 			captchaFullKeyboardPreference.title = title;
 			return captchaFullKeyboardPreference;
+		} else if (key.equals(KEY_ARCHIVE_READ_AHEAD)) {
+			Resources resources = getResources();
+			String title = resources.getString(R.string.preference_archive_read_ahead);
+			CustomPreference archiveReadAheadPreference = new CustomPreference();
+			archiveReadAheadPreference.title = title;
+			return archiveReadAheadPreference;
 		}
 		return null;
 	}
@@ -231,4 +319,8 @@ public class DvachChanConfiguration extends ChanConfiguration {
 		return get(null, KEY_CAPTCHA_FULL_KEYBOARD, false);
 	}
 
+	boolean isArchiveReadAheadEnabled() {
+		return get(null, KEY_ARCHIVE_READ_AHEAD, true);
+	}
+
 }
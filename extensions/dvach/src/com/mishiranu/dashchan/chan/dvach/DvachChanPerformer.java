@@ -3,6 +3,7 @@ package com.mishiranu.dashchan.chan.dvach;
 import android.annotation.SuppressLint;
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.os.SystemClock;
 
 import chan.content.ApiException;
 import chan.content.ChanPerformer;
@@ -17,6 +18,7 @@ import chan.http.CookieBuilder;
 import chan.http.HttpException;
 import chan.http.HttpRequest;
 import chan.http.HttpResponse;
+import chan.http.HttpValidator;
 import chan.http.MultipartEntity;
 import chan.http.UrlEncodedEntity;
 import chan.text.JsonSerial;
@@ -32,13 +34,19 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -70,28 +78,92 @@ public class DvachChanPerformer extends ChanPerformer {
 		return buildCookies(DvachChanConfiguration.get(this).getCookie(COOKIE_PASSCODE_AUTH));
 	}
 
-	private static final int[] MOBILE_API_DELAYS = {0, 250, 500, 1000};
-	private final Object mobileApiLock = new Object();
+	private static final int MOBILE_API_ATTEMPTS = 4;
+
+	private static class MobileApiLimiter {
+		private static final int BURST = 5;
+		private static final double MAX_RATE = 10.0;
+		private static final double MIN_RATE = 1.0;
+		private static final double RATE_STEP = 0.5;
+
+		private double rate = MAX_RATE;
+		private double tokens = BURST;
+		private long time = SystemClock.elapsedRealtime();
+
+		// Returns the delay in milliseconds the caller should wait before sending its request
+		public synchronized int reserve() {
+			long time = SystemClock.elapsedRealtime();
+			tokens = Math.min(BURST, tokens + (time - this.time) * rate / 1000);
+			this.time = time;
+			tokens -= 1;
+			return tokens >= 0 ? 0 : (int) Math.ceil(-tokens * 1000 / rate);
+		}
 
-	private HttpResponse readMobileApi(HttpRequest request) throws HttpException {
-		synchronized (mobileApiLock) {
-			HttpException lastException = null;
-			for (int delay : MOBILE_API_DELAYS) {
-				if (delay > 0) {
-					request.setDelay(delay);
-				}
-				try {
-					return request.perform();
-				} catch (HttpException e) {
-					if (e.isHttpException() && e.getResponseCode() == HttpURLConnection.HTTP_UNAVAILABLE) {
-						lastException = e;
-						// Retry in loop
-					} else {
-						throw e;
-					}
+		public synchronized void onSuccess() {
+			rate = Math.min(MAX_RATE, rate + RATE_STEP);
+		}
+
+		public synchronized void onUnavailable() {
+			rate = Math.max(MIN_RATE, rate / 2);
+			tokens = Math.min(tokens, 0);
+		}
+	}
+
+	private final HashMap<String, MobileApiLimiter> mobileApiLimiters = new HashMap<>();
+
+	private MobileApiLimiter obtainMobileApiLimiter(Uri uri) {
+		String host = StringUtils.emptyIfNull(uri.getHost());
+		synchronized (mobileApiLimiters) {
+			MobileApiLimiter limiter = mobileApiLimiters.get(host);
+			if (limiter == null) {
+				limiter = new MobileApiLimiter();
+				mobileApiLimiters.put(host, limiter);
+			}
+			return limiter;
+		}
+	}
+
+	private HttpResponse readMobileApi(Uri uri, HttpRequest request) throws HttpException {
+		MobileApiLimiter limiter = obtainMobileApiLimiter(uri);
+		HttpException lastException = null;
+		for (int i = 0; i < MOBILE_API_ATTEMPTS; i++) {
+			request.setDelay(limiter.reserve());
+			try {
+				HttpResponse response = request.perform();
+				limiter.onSuccess();
+				return response;
+			} catch (HttpException e) {
+				if (e.isHttpException() && e.getResponseCode() == HttpURLConnection.HTTP_UNAVAILABLE) {
+					lastException = e;
+					limiter.onUnavailable();
+					// Retry in loop
+				} else {
+					throw e;
 				}
 			}
-			throw lastException;
+		}
+		throw lastException;
+	}
+
+	private static final int MAX_POSTS_CACHES = 10;
+
+	private final LinkedHashMap<String, DvachModelMapper.PostsCache> postsCaches =
+			new LinkedHashMap<String, DvachModelMapper.PostsCache>(MAX_POSTS_CACHES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, DvachModelMapper.PostsCache> eldest) {
+			return size() > MAX_POSTS_CACHES;
+		}
+	};
+
+	private DvachModelMapper.PostsCache obtainPostsCache(String boardName, String threadNumber) {
+		String key = boardName + "/" + threadNumber;
+		synchronized (postsCaches) {
+			DvachModelMapper.PostsCache postsCache = postsCaches.get(key);
+			if (postsCache == null) {
+				postsCache = new DvachModelMapper.PostsCache();
+				postsCaches.put(key, postsCache);
+			}
+			return postsCache;
 		}
 	}
 
@@ -153,36 +225,69 @@ public class DvachChanPerformer extends ChanPerformer {
 		}
 	}
 
+	private static final int MAX_ARCHIVED_THREADS = 100;
+
+	private final LinkedHashMap<String, Boolean> archivedThreads =
+			new LinkedHashMap<String, Boolean>(MAX_ARCHIVED_THREADS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_ARCHIVED_THREADS;
+		}
+	};
+
 	@Override
 	public ReadPostsResult onReadPosts(ReadPostsData data) throws HttpException, InvalidResponseException,
 			RedirectException {
-		boolean usePartialApi = data.partialThreadLoading && data.lastPostNumber != null;
-		boolean tryReadStatic = false;
-		try {
-			return new ReadPostsResult(onReadPosts(data, usePartialApi, false));
-		} catch (HttpException e) {
-			int responseCode = e.getResponseCode();
-			if (responseCode >= 500 && responseCode < 600 && usePartialApi) {
-				tryReadStatic = true;
-			} else if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
-				throw e;
-			}
+		String archivedThreadKey = data.boardName + "/" + data.threadNumber;
+		boolean archived;
+		synchronized (archivedThreads) {
+			archived = archivedThreads.containsKey(archivedThreadKey);
 		}
-		if (tryReadStatic) {
+		if (!archived) {
+			boolean usePartialApi = data.partialThreadLoading && data.lastPostNumber != null;
+			boolean tryReadStatic = false;
 			try {
-				return new ReadPostsResult(onReadPosts(data, false, false));
+				return onReadPosts(data, usePartialApi, false);
 			} catch (HttpException e) {
-				if (e.getResponseCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+				int responseCode = e.getResponseCode();
+				if (responseCode >= 500 && responseCode < 600 && usePartialApi) {
+					tryReadStatic = true;
+				} else if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
 					throw e;
 				}
 			}
+			if (tryReadStatic) {
+				try {
+					return onReadPosts(data, false, false);
+				} catch (HttpException e) {
+					if (e.getResponseCode() != HttpURLConnection.HTTP_NOT_FOUND) {
+						throw e;
+					}
+				}
+			}
 		}
-		return new ReadPostsResult(onReadPosts(data, false, true)).setFullThread(true);
+		// Archived threads never change, so the next reads go straight to the archive
+		// and usually end with "not modified" response
+		ReadPostsResult result;
+		try {
+			result = onReadPosts(data, false, true).setFullThread(true);
+		} catch (HttpException e) {
+			if (archived && e.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+				synchronized (archivedThreads) {
+					archivedThreads.remove(archivedThreadKey);
+				}
+			}
+			throw e;
+		}
+		synchronized (archivedThreads) {
+			archivedThreads.put(archivedThreadKey, true);
+		}
+		return result;
 	}
 
 	@SuppressWarnings("SwitchStatementWithTooFewBranches")
-	private Posts onReadPosts(ReadPostsData data, boolean usePartialApi, boolean archive) throws HttpException,
-			InvalidResponseException, RedirectException {
+	private ReadPostsResult onReadPosts(ReadPostsData data, boolean usePartialApi, boolean archive)
+			throws HttpException, InvalidResponseException, RedirectException {
 		DvachChanLocator locator = DvachChanLocator.get(this);
 		DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
 		Uri uri;
@@ -202,7 +307,8 @@ public class DvachChanPerformer extends ChanPerformer {
 		}
 		HttpRequest request = new HttpRequest(uri, data).addCookie(buildCookiesWithCaptchaPass())
 				.setValidator(data.validator).setRedirectHandler(handler);
-		HttpResponse response = (usePartialApi ? readMobileApi(request) : request.perform());
+		HttpResponse response = (usePartialApi ? readMobileApi(uri, request) : request.perform());
+		HttpValidator validator = response.getValidator();
 		String archiveDate = null;
 		if (archive) {
 			if (archiveThreadUri[0] == null) {
@@ -218,6 +324,7 @@ public class DvachChanPerformer extends ChanPerformer {
 			}
 		}
 		String archiveDateFinal = archiveDate;
+		DvachModelMapper.PostsCache postsCache = obtainPostsCache(data.boardName, data.threadNumber);
 		try (InputStream input = response.open();
 				JsonSerial.Reader reader = JsonSerial.reader(input)) {
 			try {
@@ -231,7 +338,7 @@ public class DvachChanPerformer extends ChanPerformer {
 							case "posts": {
 								posts = DvachModelMapper.createPosts(reader,
 										locator, data.boardName, null,
-										configuration.isSageEnabled(data.boardName), null);
+										configuration.isSageEnabled(data.boardName), null, postsCache, false);
 								if (!posts.isEmpty()) {
 									Post post = posts.get(0);
 									String parentPostNumber = post.getParentPostNumber();
@@ -262,7 +369,8 @@ public class DvachChanPerformer extends ChanPerformer {
 					if (result == 0) {
 						throw new InvalidResponseException();
 					}
-					return new Posts(posts).setUniquePosters(uniquePosters);
+					return new ReadPostsResult(new Posts(posts).setUniquePosters(uniquePosters))
+							.setValidator(validator);
 				} else {
 					if (archiveDateFinal != null && archiveDateFinal.equals("wakaba")) {
 						ArrayList<Post> posts = new ArrayList<>();
@@ -289,7 +397,7 @@ public class DvachChanPerformer extends ChanPerformer {
 								}
 							}
 						}
-						return new Posts(posts);
+						return new ReadPostsResult(new Posts(posts)).setValidator(validator);
 					} else {
 						DvachModelMapper.BoardConfiguration boardConfiguration =
 								new DvachModelMapper.BoardConfiguration();
@@ -311,7 +419,7 @@ public class DvachChanPerformer extends ChanPerformer {
 												case "posts": {
 													posts = DvachModelMapper.createPosts(reader,
 															locator, data.boardName, archiveDateFinal,
-															sageEnabled, null);
+															sageEnabled, null, postsCache, true);
 													break;
 												}
 												default: {
@@ -347,7 +455,8 @@ public class DvachChanPerformer extends ChanPerformer {
 							}
 						}
 						configuration.updateFromThreadsPostsJson(data.boardName, boardConfiguration);
-						return new Posts(posts).setUniquePosters(uniquePosters);
+						return new ReadPostsResult(new Posts(posts).setUniquePosters(uniquePosters))
+								.setValidator(validator);
 					}
 				}
 			} catch (ParseException e) {
@@ -364,13 +473,48 @@ public class DvachChanPerformer extends ChanPerformer {
 		}
 	}
 
+	private static final int MAX_SINGLE_POSTS = 50;
+
+	private static class SinglePost {
+		public final Post post;
+		public final HttpValidator validator;
+
+		public SinglePost(Post post, HttpValidator validator) {
+			this.post = post;
+			this.validator = validator;
+		}
+	}
+
+	private final LinkedHashMap<String, SinglePost> singlePosts =
+			new LinkedHashMap<String, SinglePost>(MAX_SINGLE_POSTS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SinglePost> eldest) {
+			return size() > MAX_SINGLE_POSTS;
+		}
+	};
+
 	@Override
 	public ReadSinglePostResult onReadSinglePost(ReadSinglePostData data) throws HttpException,
 			InvalidResponseException {
 		DvachChanLocator locator = DvachChanLocator.get(this);
 		DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+		String singlePostKey = data.boardName + "/" + data.postNumber;
+		SinglePost singlePost;
+		synchronized (singlePosts) {
+			singlePost = singlePosts.get(singlePostKey);
+		}
 		Uri uri = locator.createMobileApiV2Uri("post", data.boardName, data.postNumber);
-		HttpResponse response = readMobileApi(new HttpRequest(uri, data).addCookie(buildCookiesWithCaptchaPass()));
+		HttpResponse response;
+		try {
+			response = readMobileApi(uri, new HttpRequest(uri, data)
+					.addCookie(buildCookiesWithCaptchaPass())
+					.setValidator(singlePost != null ? singlePost.validator : null));
+		} catch (HttpException e) {
+			if (singlePost != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				return new ReadSinglePostResult(singlePost.post);
+			}
+			throw e;
+		}
 		try (InputStream input = response.open();
 				JsonSerial.Reader reader = JsonSerial.reader(input)) {
 			Post post = null;
@@ -399,6 +543,12 @@ public class DvachChanPerformer extends ChanPerformer {
 			if (result == 0 || post == null) {
 				throw new InvalidResponseException();
 			}
+			HttpValidator validator = response.getValidator();
+			if (validator != null) {
+				synchronized (singlePosts) {
+					singlePosts.put(singlePostKey, new SinglePost(post, validator));
+				}
+			}
 			return new ReadSinglePostResult(post);
 		} catch (ParseException e) {
 			throw new InvalidResponseException(e);
@@ -444,46 +594,22 @@ public class DvachChanPerformer extends ChanPerformer {
 		}
 	}
 
-	@SuppressWarnings("SwitchStatementWithTooFewBranches")
 	@Override
 	public ReadSearchPostsResult onReadSearchPosts(ReadSearchPostsData data) throws HttpException,
 			InvalidResponseException {
 		DvachChanLocator locator = DvachChanLocator.get(this);
-		DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
 		if (data.searchQuery.startsWith("#")) {
-			Uri uri = locator.buildPath(data.boardName, "catalog.json");
-			HttpResponse response = new HttpRequest(uri, data).addCookie(buildCookiesWithCaptchaPass()).perform();
-			try (InputStream input = response.open();
-					JsonSerial.Reader reader = JsonSerial.reader(input)) {
-				String tag = data.searchQuery.substring(1);
-				ArrayList<Post> posts = new ArrayList<>();
-				reader.startObject();
-				while (!reader.endStruct()) {
-					switch (reader.nextName()) {
-						case "threads": {
-							reader.startArray();
-							while (!reader.endStruct()) {
-								DvachModelMapper.Extra extra = new DvachModelMapper.Extra();
-								Post post = DvachModelMapper.createPost(reader, this, data.boardName, null,
-										configuration.isSageEnabled(data.boardName), extra);
-								if (tag.equals(extra.tags)) {
-									posts.add(post);
-								}
-							}
-							break;
-						}
-						default: {
-							reader.skip();
-							break;
-						}
-					}
-				}
-				return new ReadSearchPostsResult(posts);
-			} catch (ParseException e) {
-				throw new InvalidResponseException(e);
-			} catch (IOException e) {
-				throw response.fail(e);
+			String tag = data.searchQuery.substring(1);
+			CatalogSnapshot catalogSnapshot = readCatalogSnapshot(data, data.boardName);
+			List<DvachModelMapper.CatalogThread> tagThreads = catalogSnapshot.tagsThreads.get(tag);
+			ArrayList<Post> posts = new ArrayList<>();
+			if (tagThreads != null) {
+				// Only threads with the requested tag are mapped
+				DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+				posts.addAll(DvachModelMapper.createCatalogPosts(tagThreads, this, data.boardName,
+						configuration.isSageEnabled(data.boardName), catalogSnapshot.postsCache));
 			}
+			return new ReadSearchPostsResult(posts);
 		} else {
 			Uri uri = locator.buildPath("user/search");
 			MultipartEntity entity = new MultipartEntity("board", data.boardName,
@@ -491,24 +617,188 @@ public class DvachChanPerformer extends ChanPerformer {
 			HttpResponse response = new HttpRequest(uri, data).addCookie(buildCookiesWithCaptchaPass())
 					.setPostMethod(entity).setRedirectHandler(HttpRequest.RedirectHandler.STRICT).perform();
 
-			List<String> postsNumbers = DvachModelMapper.createPostsFromHtml(response.readString());
-			List<Post> posts = new ArrayList<>();
+			List<String> postsNumbers;
+			try (InputStream input = response.open()) {
+				postsNumbers = new DvachSearchPostsParser().parse(input);
+			} catch (ParseException e) {
+				throw new InvalidResponseException(e);
+			} catch (IOException e) {
+				throw response.fail(e);
+			}
+			List<Post> posts = readSearchPosts(data, postsNumbers);
+			return new ReadSearchPostsResult(posts);
+		}
+	}
+
+	private static final int SEARCH_POSTS_THREADS = 4;
 
-			for (String number : postsNumbers) {
+	private List<Post> readSearchPosts(ReadSearchPostsData data, List<String> postsNumbers)
+			throws HttpException, InvalidResponseException {
+		if (postsNumbers.isEmpty()) {
+			return Collections.emptyList();
+		}
+		ArrayList<Callable<Post>> tasks = new ArrayList<>(postsNumbers.size());
+		for (String postNumber : postsNumbers) {
+			tasks.add(() -> readSearchPost(data, postNumber));
+		}
+		// Requests use the caller's preset, so the executor lives only as long as this call
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), SEARCH_POSTS_THREADS));
+		try {
+			List<Future<Post>> futures = executor.invokeAll(tasks);
+			ArrayList<Post> posts = new ArrayList<>(futures.size());
+			Throwable failure = null;
+			for (Future<Post> future : futures) {
+				try {
+					Post post = future.get();
+					if (post != null) {
+						posts.add(post);
+					}
+				} catch (ExecutionException e) {
+					// Skip failed posts and report the failure only if nothing was loaded
+					if (failure == null) {
+						failure = e.getCause();
+					}
+				}
+			}
+			if (posts.isEmpty() && failure != null) {
+				if (failure instanceof HttpException) {
+					throw (HttpException) failure;
+				} else if (failure instanceof InvalidResponseException) {
+					throw (InvalidResponseException) failure;
+				} else if (failure instanceof RuntimeException) {
+					throw (RuntimeException) failure;
+				} else if (failure instanceof Error) {
+					throw (Error) failure;
+				} else {
+					throw new InvalidResponseException(new Exception(failure));
+				}
+			}
+			return posts;
+		} catch (InterruptedException e) {
+			// invokeAll has already cancelled the unfinished requests
+			Thread.currentThread().interrupt();
+			throw new HttpException(0, null);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@SuppressWarnings("SwitchStatementWithTooFewBranches")
+	private Post readSearchPost(ReadSearchPostsData data, String postNumber) throws HttpException,
+			InvalidResponseException {
+		DvachChanLocator locator = DvachChanLocator.get(this);
+		DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+		Uri uri = locator.createMobileApiV2Uri("post", data.boardName, postNumber);
+		HttpResponse response = readMobileApi(uri, new HttpRequest(uri, data)
+				.addCookie(buildCookiesWithCaptchaPass()).setGetMethod()
+				.setRedirectHandler(HttpRequest.RedirectHandler.STRICT));
+		try (InputStream input = response.open();
+				JsonSerial.Reader reader = JsonSerial.reader(input)) {
+			Post post = null;
+			reader.startObject();
+			while (!reader.endStruct()) {
+				switch (reader.nextName()) {
+					case "post": {
+						post = DvachModelMapper.createPost(reader, this, data.boardName, null,
+								configuration.isSageEnabled(data.boardName), null);
+						break;
+					}
+					default: {
+						reader.skip();
+						break;
+					}
+				}
+			}
+			return post;
+		} catch (ParseException e) {
+			throw new InvalidResponseException(e);
+		} catch (IOException e) {
+			throw response.fail(e);
+		}
+	}
 
-				uri = locator.createMobileApiV2Uri("post", data.boardName, number);
-				response = new HttpRequest(uri, data).addCookie(buildCookiesWithCaptchaPass())
-						.setGetMethod().setRedirectHandler(HttpRequest.RedirectHandler.STRICT).perform();
+	private static final String USER_BOARDS_CATEGORY = "Пользовательские";
+	private static final int BOARDS_LIST_FRESH_TIME = 60 * 1000;
+
+	private static class BoardsList {
+		public final List<BoardCategory> boardCategories;
+		public final List<Board> userBoards;
+		public final HttpValidator validator;
+		public final long time;
+
+		public BoardsList(List<BoardCategory> boardCategories, List<Board> userBoards,
+				HttpValidator validator, long time) {
+			this.boardCategories = boardCategories;
+			this.userBoards = userBoards;
+			this.validator = validator;
+			this.time = time;
+		}
+	}
 
-				try(InputStream input = response.open(); JsonSerial.Reader reader = JsonSerial.reader(input)) {
+	private final Object boardsListLock = new Object();
+	private BoardsList boardsList;
 
+	private BoardsList readBoardsList(HttpRequest.Preset preset) throws HttpException,
+			InvalidResponseException {
+		// Concurrent callers wait for a single boards request
+		synchronized (boardsListLock) {
+			BoardsList boardsList = this.boardsList;
+			if (boardsList != null && SystemClock.elapsedRealtime() - boardsList.time < BOARDS_LIST_FRESH_TIME) {
+				return boardsList;
+			}
+			DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+			DvachChanLocator locator = DvachChanLocator.get(this);
+			Uri uri = locator.createMobileApiV2Uri("boards");
+			HttpResponse response;
+			try {
+				response = new HttpRequest(uri, preset).setGetMethod().addCookie(buildCookiesWithCaptchaPass())
+						.setValidator(boardsList != null ? boardsList.validator : null).perform();
+			} catch (HttpException e) {
+				if (boardsList != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					boardsList = new BoardsList(boardsList.boardCategories, boardsList.userBoards,
+							boardsList.validator, SystemClock.elapsedRealtime());
+					this.boardsList = boardsList;
+					return boardsList;
+				}
+				throw e;
+			}
+			HashMap<String, ArrayList<Board>> boardsMap = new HashMap<>();
+			ArrayList<Board> userBoards = new ArrayList<>();
+			try (InputStream input = response.open();
+					JsonSerial.Reader reader = JsonSerial.reader(input)) {
+				reader.startArray();
+				while (!reader.endStruct()) {
+					String category = null;
+					String boardName = null;
+					String title = null;
+					String description = null;
+					String defaultName = null;
+					Integer bumpLimit = null;
 					reader.startObject();
 					while (!reader.endStruct()) {
 						switch (reader.nextName()) {
-							case "post": {
-								Post post = DvachModelMapper.createPost(reader, this, data.boardName, null,
-										configuration.isSageEnabled(data.boardName), null);
-								posts.add(post);
+							case "category": {
+								category = reader.nextString();
+								break;
+							}
+							case "id": {
+								boardName = reader.nextString();
+								break;
+							}
+							case "name": {
+								title = reader.nextString();
+								break;
+							}
+							case "info": {
+								description = reader.nextString();
+								break;
+							}
+							case "default_name": {
+								defaultName = reader.nextString();
+								break;
+							}
+							case "bump_limit": {
+								bumpLimit = reader.nextInt();
 								break;
 							}
 							default: {
@@ -517,218 +807,370 @@ public class DvachChanPerformer extends ChanPerformer {
 							}
 						}
 					}
-
-				} catch (ParseException e) {
-					throw new InvalidResponseException();
-				} catch (IOException e) {
-					throw response.fail(e);
+					if (!StringUtils.isEmpty(category) && !StringUtils.isEmpty(boardName) &&
+							!StringUtils.isEmpty(title)) {
+						description = configuration.transformBoardDescription(description);
+						Board board = new Board(boardName, title, description);
+						if (USER_BOARDS_CATEGORY.equals(category)) {
+							userBoards.add(board);
+						}
+						ArrayList<Board> boards = boardsMap.get(category);
+						if (boards == null) {
+							boards = new ArrayList<>();
+							boardsMap.put(category, boards);
+						}
+						boards.add(board);
+						configuration.updateFromBoardsJson(boardName, defaultName, bumpLimit);
+					}
 				}
-
+			} catch (ParseException e) {
+				throw new InvalidResponseException(e);
+			} catch (IOException e) {
+				throw response.fail(e);
 			}
-
-			return new ReadSearchPostsResult(posts);
+			ArrayList<BoardCategory> boardCategories = new ArrayList<>();
+			for (String title : PREFERRED_BOARDS_ORDER) {
+				ArrayList<Board> boards = boardsMap.get(title);
+				if (boards != null) {
+					Collections.sort(boards);
+					boardCategories.add(new BoardCategory(title, boards));
+				}
+			}
+			boardsList = new BoardsList(boardCategories, userBoards, response.getValidator(),
+					SystemClock.elapsedRealtime());
+			this.boardsList = boardsList;
+			return boardsList;
 		}
 	}
 
-	@SuppressWarnings("SwitchStatementWithTooFewBranches")
 	@Override
 	public ReadBoardsResult onReadBoards(ReadBoardsData data) throws HttpException, InvalidResponseException {
+		return new ReadBoardsResult(new ArrayList<>(readBoardsList(data).boardCategories));
+	}
 
-		DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
-		DvachChanLocator locator = DvachChanLocator.get(this);
-		Uri uri = locator.buildPath("/api/mobile/v2/boards");
+	@Override
+	public ReadUserBoardsResult onReadUserBoards(ReadUserBoardsData data) throws HttpException,
+			InvalidResponseException {
+		return new ReadUserBoardsResult(new ArrayList<>(readBoardsList(data).userBoards));
+	}
 
-		JSONArray jsonArray = null;
-		try {
-			String value = new HttpRequest(uri, data)
-					.setGetMethod()
-					.addCookie(buildCookiesWithCaptchaPass()).perform().readString();
-			jsonArray = new JSONArray(value);
-		} catch (HttpException e) {
-			throw new HttpException(e.getResponseCode(), e.getMessage());
-		} catch (JSONException e) {
-			throw new InvalidResponseException();
-		}
+	private static final int ARCHIVE_READ_AHEAD_PAGES = 2;
+	private static final int MAX_ARCHIVE_PAGES = 20;
+	private static final int MAX_ARCHIVE_THREAD_SUMMARIES = 5000;
+	private static final int ARCHIVE_PAGE_FRESH_TIME = 10 * 60 * 1000;
 
-		HashMap<String, ArrayList<Board>> boardsMap = new HashMap<>();
+	private static class ArchiveIndex {
+		public final List<Integer> pages;
+		public final List<ThreadSummary> threadSummaries;
+		public final HttpValidator validator;
 
-		try {
-			for (int i = 0; i < jsonArray.length(); i++) {
+		public ArchiveIndex(List<Integer> pages, List<ThreadSummary> threadSummaries, HttpValidator validator) {
+			this.pages = pages;
+			this.threadSummaries = threadSummaries;
+			this.validator = validator;
+		}
+	}
 
-				JSONObject jsonObject = jsonArray.getJSONObject(i);
+	private static class ArchivePage {
+		public final List<ThreadSummary> threadSummaries;
+		public final HttpValidator validator;
+		public final long time;
 
-				String category = null;
-				String boardName = null;
-				String title = null;
-				String description = null;
-				String defaultName = null;
-				Integer bumpLimit = null;
+		public ArchivePage(List<ThreadSummary> threadSummaries, HttpValidator validator, long time) {
+			this.threadSummaries = threadSummaries;
+			this.validator = validator;
+			this.time = time;
+		}
+	}
 
-				Iterator<String> keys = jsonObject.keys();
+	private final HashMap<String, ArchiveIndex> archiveIndexes = new HashMap<>();
+	private final LinkedHashMap<String, ArchivePage> archivePages = new LinkedHashMap<>(MAX_ARCHIVE_PAGES,
+			0.75f, true);
+	private int archivePagesThreadSummariesCount;
 
-				while (keys.hasNext()) {
-					switch (keys.next()) {
-						case "category": {
-							category = jsonObject.getString("category");
-							break;
-						}
-						case "id": {
-							boardName = jsonObject.getString("id");;
-							break;
-						}
-						case "name": {
-							title = jsonObject.getString("name");;
-							break;
-						}
-						case "info": {
-							description = jsonObject.getString("info");;
-							break;
-						}
-						case "default_name": {
-							defaultName = jsonObject.getString("default_name");;
-							break;
-						}
-						case "bump_limit": {
-							bumpLimit = Integer.getInteger(jsonObject.getString("bump_limit"));;
-							break;
-						}
-						default: {
-							break;
+	private ArchiveIndex readArchiveIndex(HttpRequest.Preset preset, String boardName) throws HttpException,
+			InvalidResponseException {
+		ArchiveIndex archiveIndex;
+		synchronized (archiveIndexes) {
+			archiveIndex = archiveIndexes.get(boardName);
+		}
+		DvachChanLocator locator = DvachChanLocator.get(this);
+		Uri uri = locator.buildPath(boardName, "arch", "index.json");
+		HttpResponse response;
+		try {
+			response = new HttpRequest(uri, preset)
+					.setValidator(archiveIndex != null ? archiveIndex.validator : null).perform();
+		} catch (HttpException e) {
+			if (archiveIndex != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				return archiveIndex;
+			}
+			throw e;
+		}
+		ArrayList<Integer> pages = new ArrayList<>();
+		List<ThreadSummary> threadSummaries = Collections.emptyList();
+		try (InputStream input = response.open();
+				JsonSerial.Reader reader = JsonSerial.reader(input)) {
+			reader.startObject();
+			while (!reader.endStruct()) {
+				switch (reader.nextName()) {
+					case "pages": {
+						reader.startArray();
+						while (!reader.endStruct()) {
+							pages.add(reader.nextInt());
 						}
+						break;
 					}
-				}
-
-				if (!StringUtils.isEmpty(category) && !StringUtils.isEmpty(boardName) &&
-						!StringUtils.isEmpty(title)) {
-					ArrayList<Board> boards = boardsMap.get(category);
-					if (boards == null) {
-						boards = new ArrayList<>();
-						boardsMap.put(category, boards);
+					case "threads": {
+						threadSummaries = DvachModelMapper.createArchive(reader, boardName);
+						break;
+					}
+					default: {
+						reader.skip();
+						break;
 					}
-					description = configuration.transformBoardDescription(description);
-					boards.add(new Board(boardName, title, description));
-					configuration.updateFromBoardsJson(boardName, defaultName, bumpLimit);
 				}
-
 			}
-		} catch (JSONException e) {
-			throw new InvalidResponseException();
+		} catch (ParseException e) {
+			throw new InvalidResponseException(e);
+		} catch (IOException e) {
+			throw response.fail(e);
 		}
+		archiveIndex = new ArchiveIndex(pages, threadSummaries, response.getValidator());
+		synchronized (archiveIndexes) {
+			archiveIndexes.put(boardName, archiveIndex);
+		}
+		return archiveIndex;
+	}
 
-		ArrayList<BoardCategory> boardCategories = new ArrayList<>();
-		for (String title : PREFERRED_BOARDS_ORDER) {
-			for (HashMap.Entry<String, ArrayList<Board>> entry : boardsMap.entrySet()) {
-				if (title.equals(entry.getKey())) {
-					ArrayList<Board> boards = entry.getValue();
-					Collections.sort(boards);
-					boardCategories.add(new BoardCategory(title, boards));
-					break;
-				}
-			}
+	private ArchivePage getCachedArchivePage(String key) {
+		synchronized (archivePages) {
+			return archivePages.get(key);
 		}
+	}
 
-		return new ReadBoardsResult(boardCategories);
+	private static boolean isArchivePageFresh(ArchivePage archivePage) {
+		return archivePage != null && SystemClock.elapsedRealtime() - archivePage.time < ARCHIVE_PAGE_FRESH_TIME;
+	}
 
+	private void putArchivePage(String key, ArchivePage archivePage) {
+		synchronized (archivePages) {
+			ArchivePage oldArchivePage = archivePages.put(key, archivePage);
+			if (oldArchivePage != null) {
+				archivePagesThreadSummariesCount -= oldArchivePage.threadSummaries.size();
+			}
+			archivePagesThreadSummariesCount += archivePage.threadSummaries.size();
+			// Keep both the number of pages and the number of summaries in memory bounded
+			Iterator<ArchivePage> iterator = archivePages.values().iterator();
+			while (archivePages.size() > 1 && (archivePages.size() > MAX_ARCHIVE_PAGES ||
+					archivePagesThreadSummariesCount > MAX_ARCHIVE_THREAD_SUMMARIES)) {
+				archivePagesThreadSummariesCount -= iterator.next().threadSummaries.size();
+				iterator.remove();
+			}
+		}
 	}
 
 	@SuppressWarnings("SwitchStatementWithTooFewBranches")
-	@Override
-	public ReadUserBoardsResult onReadUserBoards(ReadUserBoardsData data) throws HttpException,
-			InvalidResponseException {
-
-		DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+	private List<ThreadSummary> readArchivePage(HttpRequest.Preset preset, String boardName, int page)
+			throws HttpException, InvalidResponseException {
+		String key = boardName + "/" + page;
+		ArchivePage archivePage = getCachedArchivePage(key);
+		if (isArchivePageFresh(archivePage)) {
+			return archivePage.threadSummaries;
+		}
 		DvachChanLocator locator = DvachChanLocator.get(this);
-		Uri uri = locator.buildPath("/api/mobile/v2/boards");
-
-		JSONArray jsonArray = null;
+		Uri uri = locator.buildPath(boardName, "arch", page + ".json");
+		HttpResponse response;
 		try {
-			String value = new HttpRequest(uri, data)
-					.setGetMethod()
-					.addCookie(buildCookiesWithCaptchaPass()).perform().readString();
-			jsonArray = new JSONArray(value);
+			response = new HttpRequest(uri, preset)
+					.setValidator(archivePage != null ? archivePage.validator : null).perform();
 		} catch (HttpException e) {
-			throw new HttpException(e.getResponseCode(), e.getMessage());
-		} catch (JSONException e) {
-			throw new InvalidResponseException();
+			if (archivePage != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				putArchivePage(key, new ArchivePage(archivePage.threadSummaries, archivePage.validator,
+						SystemClock.elapsedRealtime()));
+				return archivePage.threadSummaries;
+			}
+			throw e;
 		}
-
-		ArrayList<Board> boards = new ArrayList<>();
-
-		try {
-			for (int i = 0; i < jsonArray.length(); i++) {
-
-				JSONObject jsonObject = jsonArray.getJSONObject(i);
-
-				String boardName = null;
-				String title = null;
-				String description = null;
-
-				Iterator<String> keys = jsonObject.keys();
-
-				while (keys.hasNext()) {
-					switch (keys.next()) {
-						case "id": {
-							boardName = jsonObject.getString("id");
-							;
-							break;
-						}
-						case "name": {
-							title = jsonObject.getString("name");
-							;
-							break;
-						}
-						case "info": {
-							description = jsonObject.getString("info");
-							;
-							break;
-						}
-						default: {
-							break;
-						}
+		List<ThreadSummary> threadSummaries = Collections.emptyList();
+		try (InputStream input = response.open();
+				JsonSerial.Reader reader = JsonSerial.reader(input)) {
+			reader.startObject();
+			while (!reader.endStruct()) {
+				switch (reader.nextName()) {
+					case "threads": {
+						threadSummaries = DvachModelMapper.createArchive(reader, boardName);
+						break;
 					}
-					if (jsonObject.getString("category").equals("Пользовательские")) {
-						if (!StringUtils.isEmpty(boardName) && !StringUtils.isEmpty(title)) {
-							description = configuration.transformBoardDescription(description);
-							boards.add(new Board(boardName, title, description));
-						}
+					default: {
+						reader.skip();
+						break;
 					}
 				}
 			}
-		} catch (JSONException e) {
-			throw new InvalidResponseException();
+		} catch (ParseException e) {
+			throw new InvalidResponseException(e);
+		} catch (IOException e) {
+			throw response.fail(e);
 		}
-
-		return new ReadUserBoardsResult(boards);
-
+		putArchivePage(key, new ArchivePage(threadSummaries, response.getValidator(),
+				SystemClock.elapsedRealtime()));
+		return threadSummaries;
 	}
 
-	@SuppressWarnings("SwitchStatementWithTooFewBranches")
 	@Override
 	public ReadThreadSummariesResult onReadThreadSummaries(ReadThreadSummariesData data) throws HttpException,
 			InvalidResponseException {
 		if (data.type == ReadThreadSummariesData.TYPE_ARCHIVED_THREADS) {
+			DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+			ArchiveIndex archiveIndex = readArchiveIndex(data, data.boardName);
+			List<Integer> pages = archiveIndex.pages;
+			if (data.pageNumber > 0 && data.pageNumber + 1 > pages.size()) {
+				return new ReadThreadSummariesResult();
+			}
+			List<ThreadSummary> threadSummaries = data.pageNumber > 0 ? readArchivePage(data, data.boardName,
+					pages.get(pages.size() - data.pageNumber - 1)) : archiveIndex.threadSummaries;
+			// Paging is started, so load the following pages with the same request to make the next flips instant
+			if (data.pageNumber > 0 && configuration.isArchiveReadAheadEnabled()) {
+				int last = Math.min(data.pageNumber + ARCHIVE_READ_AHEAD_PAGES, pages.size() - 1);
+				for (int i = data.pageNumber + 1; i <= last; i++) {
+					int page = pages.get(pages.size() - i - 1);
+					if (!isArchivePageFresh(getCachedArchivePage(data.boardName + "/" + page))) {
+						try {
+							readArchivePage(data, data.boardName, page);
+						} catch (HttpException e) {
+							if (!e.isHttpException()) {
+								// Request is cancelled or the connection is lost
+								break;
+							}
+						} catch (InvalidResponseException e) {
+							// Read-ahead is optional, the page will be requested again when opened
+						}
+					}
+				}
+			}
+			return new ReadThreadSummariesResult(new ArrayList<>(threadSummaries));
+		} else {
+			return super.onReadThreadSummaries(data);
+		}
+	}
+
+	private static final int CATALOG_POSTS_COUNT_MIN_THREADS = 3;
+	private static final int POSTS_COUNT_POLL_WINDOW = 5 * 60 * 1000;
+	private static final int CATALOG_FRESH_TIME = 15 * 1000;
+	private static final int MAX_CATALOG_SNAPSHOTS = 10;
+
+	private static class CatalogSnapshot {
+		public final HashMap<String, Integer> postsCounts;
+		public final HashMap<String, List<DvachModelMapper.CatalogThread>> tagsThreads;
+		public final DvachModelMapper.PostsCache postsCache;
+		public final HttpValidator validator;
+		public final long time;
+
+		public CatalogSnapshot(HashMap<String, Integer> postsCounts,
+				HashMap<String, List<DvachModelMapper.CatalogThread>> tagsThreads,
+				DvachModelMapper.PostsCache postsCache, HttpValidator validator, long time) {
+			this.postsCounts = postsCounts;
+			this.tagsThreads = tagsThreads;
+			this.postsCache = postsCache;
+			this.validator = validator;
+			this.time = time;
+		}
+	}
+
+	private final HashMap<String, HashMap<String, Long>> postsCountPolls = new HashMap<>();
+	private final HashMap<String, Object> catalogLocks = new HashMap<>();
+
+	private final LinkedHashMap<String, CatalogSnapshot> catalogSnapshots =
+			new LinkedHashMap<String, CatalogSnapshot>(MAX_CATALOG_SNAPSHOTS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CatalogSnapshot> eldest) {
+			return size() > MAX_CATALOG_SNAPSHOTS;
+		}
+	};
+
+	private boolean registerPostsCountPoll(String boardName, String threadNumber) {
+		long time = SystemClock.elapsedRealtime();
+		synchronized (postsCountPolls) {
+			HashMap<String, Long> polls = postsCountPolls.get(boardName);
+			if (polls == null) {
+				polls = new HashMap<>();
+				postsCountPolls.put(boardName, polls);
+			}
+			polls.put(threadNumber, time);
+			Iterator<Long> iterator = polls.values().iterator();
+			while (iterator.hasNext()) {
+				if (time - iterator.next() > POSTS_COUNT_POLL_WINDOW) {
+					iterator.remove();
+				}
+			}
+			// Catalog is worth loading only when it covers several watched threads
+			return polls.size() >= CATALOG_POSTS_COUNT_MIN_THREADS;
+		}
+	}
+
+	private CatalogSnapshot readCatalogSnapshot(HttpRequest.Preset preset, String boardName)
+			throws HttpException, InvalidResponseException {
+		Object lock;
+		synchronized (catalogLocks) {
+			lock = catalogLocks.get(boardName);
+			if (lock == null) {
+				lock = new Object();
+				catalogLocks.put(boardName, lock);
+			}
+		}
+		// Concurrent polls for the same board wait for a single catalog request
+		synchronized (lock) {
+			CatalogSnapshot catalogSnapshot;
+			synchronized (catalogSnapshots) {
+				catalogSnapshot = catalogSnapshots.get(boardName);
+			}
+			if (catalogSnapshot != null && SystemClock.elapsedRealtime() - catalogSnapshot.time <
+					CATALOG_FRESH_TIME) {
+				return catalogSnapshot;
+			}
 			DvachChanLocator locator = DvachChanLocator.get(this);
-			Uri uri = locator.buildPath(data.boardName, "arch", "index.json");
-			HttpResponse response = new HttpRequest(uri, data).perform();
-			ArrayList<Integer> pages = new ArrayList<>();
-			List<ThreadSummary> threadSummaries = Collections.emptyList();
+			Uri uri = locator.buildPath(boardName, "catalog.json");
+			HttpResponse response;
+			try {
+				response = new HttpRequest(uri, preset).addCookie(buildCookiesWithCaptchaPass())
+						.setValidator(catalogSnapshot != null ? catalogSnapshot.validator : null).perform();
+			} catch (HttpException e) {
+				if (catalogSnapshot != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					catalogSnapshot = new CatalogSnapshot(catalogSnapshot.postsCounts, catalogSnapshot.tagsThreads,
+							catalogSnapshot.postsCache, catalogSnapshot.validator, SystemClock.elapsedRealtime());
+					synchronized (catalogSnapshots) {
+						catalogSnapshots.put(boardName, catalogSnapshot);
+					}
+					return catalogSnapshot;
+				}
+				throw e;
+			}
+			DvachChanConfiguration configuration = DvachChanConfiguration.get(this);
+			// Mapped threads are kept between snapshots, unchanged ones are not mapped again
+			DvachModelMapper.PostsCache postsCache = catalogSnapshot != null ? catalogSnapshot.postsCache
+					: new DvachModelMapper.PostsCache();
+			HashMap<String, Integer> postsCounts = new HashMap<>();
+			HashMap<String, List<DvachModelMapper.CatalogThread>> tagsThreads = new HashMap<>();
 			try (InputStream input = response.open();
 					JsonSerial.Reader reader = JsonSerial.reader(input)) {
 				reader.startObject();
 				while (!reader.endStruct()) {
 					switch (reader.nextName()) {
-						case "pages": {
-							reader.startArray();
-							while (!reader.endStruct()) {
-								pages.add(reader.nextInt());
-							}
-							break;
-						}
 						case "threads": {
-							if (data.pageNumber > 0 && !pages.isEmpty()) {
-								reader.skip();
-							} else {
-								threadSummaries = DvachModelMapper.createArchive(reader, data.boardName);
+							List<DvachModelMapper.CatalogThread> threads = DvachModelMapper.createCatalog(reader,
+									this, boardName, configuration.isSageEnabled(boardName), postsCache);
+							for (DvachModelMapper.CatalogThread thread : threads) {
+								if (thread.threadNumber != null) {
+									postsCounts.put(thread.threadNumber, thread.postsCount);
+								}
+								if (thread.tags != null) {
+									List<DvachModelMapper.CatalogThread> tagThreads = tagsThreads.get(thread.tags);
+									if (tagThreads == null) {
+										tagThreads = new ArrayList<>();
+										tagsThreads.put(thread.tags, tagThreads);
+									}
+									tagThreads.add(thread);
+								}
 							}
 							break;
 						}
@@ -743,38 +1185,12 @@ public class DvachChanPerformer extends ChanPerformer {
 			} catch (IOException e) {
 				throw response.fail(e);
 			}
-			if (data.pageNumber > 0) {
-				if (data.pageNumber + 1 > pages.size()) {
-					return new ReadThreadSummariesResult();
-				}
-				int pageNumber = pages.get(pages.size() - data.pageNumber - 1);
-				uri = locator.buildPath(data.boardName, "arch", pageNumber + ".json");
-				response = new HttpRequest(uri, data).perform();
-				threadSummaries = Collections.emptyList();
-				try (InputStream input = response.open();
-						JsonSerial.Reader reader = JsonSerial.reader(input)) {
-					reader.startObject();
-					while (!reader.endStruct()) {
-						switch (reader.nextName()) {
-							case "threads": {
-								threadSummaries = DvachModelMapper.createArchive(reader, data.boardName);
-								break;
-							}
-							default: {
-								reader.skip();
-								break;
-							}
-						}
-					}
-				} catch (ParseException e) {
-					throw new InvalidResponseException(e);
-				} catch (IOException e) {
-					throw response.fail(e);
-				}
+			catalogSnapshot = new CatalogSnapshot(postsCounts, tagsThreads, postsCache, response.getValidator(),
+					SystemClock.elapsedRealtime());
+			synchronized (catalogSnapshots) {
+				catalogSnapshots.put(boardName, catalogSnapshot);
 			}
-			return new ReadThreadSummariesResult(threadSummaries);
-		} else {
-			return super.onReadThreadSummaries(data);
+			return catalogSnapshot;
 		}
 	}
 
@@ -782,9 +1198,26 @@ public class DvachChanPerformer extends ChanPerformer {
 	@Override
 	public ReadPostsCountResult onReadPostsCount(ReadPostsCountData data) throws HttpException,
 			InvalidResponseException {
+		if (registerPostsCountPoll(data.boardName, data.threadNumber)) {
+			Integer count = null;
+			try {
+				count = readCatalogSnapshot(data, data.boardName).postsCounts.get(data.threadNumber);
+			} catch (HttpException e) {
+				if (!e.isHttpException()) {
+					throw e;
+				}
+				// Fall back to thread info request
+			} catch (InvalidResponseException e) {
+				// Fall back to thread info request
+			}
+			if (count != null) {
+				return new ReadPostsCountResult(count);
+			}
+		}
 		DvachChanLocator locator = DvachChanLocator.get(this);
 		Uri uri = locator.createMobileApiV2Uri("info", data.boardName, data.threadNumber);
-		HttpResponse response = readMobileApi(new HttpRequest(uri, data).addCookie(buildCookiesWithCaptchaPass()));
+		HttpResponse response = readMobileApi(uri, new HttpRequest(uri, data)
+				.addCookie(buildCookiesWithCaptchaPass()));
 		try (InputStream input = response.open();
 				JsonSerial.Reader reader = JsonSerial.reader(input)) {
 			int count = 0;
@@ -890,7 +1323,7 @@ public class DvachChanPerformer extends ChanPerformer {
 		Uri uri = locator.buildPath("api", "captcha", "settings", data.boardName);
 		JSONObject jsonObject;
 		try {
-			jsonObject = new JSONObject(readMobileApi(new HttpRequest(uri, data)
+			jsonObject = new JSONObject(readMobileApi(uri, new HttpRequest(uri, data)
 					.addCookie(buildCookies(null))).readString());
 		} catch (JSONException e) {
 			throw new InvalidResponseException(e);
@@ -937,7 +1370,7 @@ public class DvachChanPerformer extends ChanPerformer {
 		JSONObject jsonObject = null;
 		HttpException exception = null;
 		try {
-			jsonObject = new JSONObject(readMobileApi(new HttpRequest(uri, data)
+			jsonObject = new JSONObject(readMobileApi(uri, new HttpRequest(uri, data)
 					.addCookie(buildCookies(captchaPassCookie))).readString());
 		} catch (JSONException e) {
 			// Ignore exception
@@ -1072,6 +1505,23 @@ public class DvachChanPerformer extends ChanPerformer {
 		DATE_FORMAT_BAN.setTimeZone(TimeZone.getTimeZone("GMT+3"));
 	}
 
+	// Upload progress is reported to the client through the request preset, so the upload is measured as a whole
+	private static void logPostingMetrics(SendPostData data, long startTime, long responseTime, long endTime) {
+		StringBuilder files = new StringBuilder();
+		long totalSize = 0;
+		if (data.attachments != null) {
+			for (int i = 0; i < data.attachments.length; i++) {
+				long size = data.attachments[i].getSize();
+				totalSize += size;
+				files.append(i == 0 ? " files=" : ",").append(size);
+			}
+		}
+		long uploadTime = responseTime - startTime;
+		long bytesPerSecond = uploadTime > 0 ? totalSize * 1000 / uploadTime : 0;
+		CommonUtils.writeLog("Dvach posting", "/" + data.boardName + "/", "total=" + (endTime - startTime) + "ms",
+				"response=" + uploadTime + "ms", "bytes=" + totalSize, "rate=" + bytesPerSecond + "B/s" + files);
+	}
+
 	@Override
 	public SendPostResult onSendPost(SendPostData data) throws HttpException, ApiException, InvalidResponseException {
 		DvachChanLocator locator = DvachChanLocator.get(this);
@@ -1136,12 +1586,16 @@ public class DvachChanPerformer extends ChanPerformer {
 		}
 
 		Uri uri = locator.buildPath("user/posting");
+		long startTime = SystemClock.elapsedRealtime();
 		HttpResponse response = new HttpRequest(uri, data).setPostMethod(entity)
 				.addCookie(buildCookies(captchaPassCookie)).addCookie(originalPosterCookieName, originalPosterCookie)
 				.setRedirectHandler(HttpRequest.RedirectHandler.STRICT).perform();
+		long responseTime = SystemClock.elapsedRealtime();
+		String responseText = response.readString();
+		logPostingMetrics(data, startTime, responseTime, SystemClock.elapsedRealtime());
 		JSONObject jsonObject;
 		try {
-			jsonObject = new JSONObject(response.readString());
+			jsonObject = new JSONObject(responseText);
 		} catch (JSONException e) {
 			throw new InvalidResponseException(e);
 		}
@@ -3,6 +3,8 @@ package com.mishiranu.dashchan.chan.dvach;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.net.Uri;
 import android.util.Base64;
 
@@ -13,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import chan.content.ChanPerformer;
@@ -38,6 +41,12 @@ class DvachEmojiCaptchaProvider {
 
     private final DvachEmojiCaptchaAnswerRetriever answerRetriever;
 
+    // Keyboard icons repeat across steps, so prepared keys are reused by their base64 content
+    private final HashMap<String, Bitmap> keyBitmaps = new HashMap<>();
+
+    private String taskImageBase64;
+    private Bitmap taskImage;
+
     /**
      * Main constructor. For each captcha task we creating new instance of this class.
      * @param data - input info about captcha
@@ -71,42 +80,42 @@ class DvachEmojiCaptchaProvider {
         //prepare selected emojis state
         SelectedEmojis selected = new SelectedEmojis();
 
-        return solveEmojiCaptchaLoop(parsedResponse, selected);
+        try {
+            return solveEmojiCaptchaLoop(parsedResponse, selected);
+        } finally {
+            // Task image and selected emojis strip are never passed outside, so they can be freed
+            if (taskImage != null) {
+                taskImage.recycle();
+                taskImage = null;
+            }
+            selected.recycle();
+        }
     }
 
     /**
      * Captcha solving loop method. After each user input, we sent it to the server and getting a
      * new keyboard, until {@link EmojiCaptchaResponse.Success} is received.
-     * @param parsedResponse current server response
+     * @param parsedResponse initial server response
      * @param selected current user selected emojis
-     * @return captcha answer (probably from recursive method call)
+     * @return captcha answer
      * @throws HttpException
      */
     private ChanPerformer.ReadCaptchaResult solveEmojiCaptchaLoop(
             EmojiCaptchaResponse parsedResponse,
             SelectedEmojis selected
     ) throws HttpException {
-        // If we received new captcha content, then we show it to user, so that he chooses emoji from keyboard
-        if (parsedResponse instanceof EmojiCaptchaResponse.Content) {
+        // While we receive new captcha content, we show it to user, so that he chooses emoji from keyboard
+        while (parsedResponse instanceof EmojiCaptchaResponse.Content) {
             EmojiCaptchaResponse.Content content = (EmojiCaptchaResponse.Content) parsedResponse;
 
             // prepare captcha task image with previously selected emojis
-            Bitmap captchaImage = base64ToBitmap(content.image);
+            Bitmap captchaImage = obtainTaskImage(content.image);
             Bitmap comboBitmap = createTaskWithSelectedBitmap(captchaImage, selected);
 
             // prepare captcha task keyboard array
             Bitmap[] keyboardImages = new Bitmap[content.keyboard.size()];
             for (int i = 0; i < content.keyboard.size(); i++) {
-                Bitmap origKeyIcon = base64ToBitmap(content.keyboard.get(i));
-                int maxSize = Math.max(origKeyIcon.getHeight(), origKeyIcon.getWidth());
-                Bitmap keyBitmap = Bitmap.createBitmap(maxSize, maxSize, Bitmap.Config.ARGB_8888);
-                Canvas keyCanvas = new Canvas(keyBitmap);
-                // set key background to white so the black icon would not overlap with dark theme
-                keyCanvas.drawARGB(255, 255, 255, 255);
-                int x = Math.max((origKeyIcon.getHeight() - origKeyIcon.getWidth()) / 2, 0);
-                int y = Math.max((origKeyIcon.getWidth() - origKeyIcon.getHeight()) / 2, 0);
-                keyCanvas.drawBitmap(origKeyIcon, x, y, null);
-                keyboardImages[i] = keyBitmap;
+                keyboardImages[i] = obtainKeyBitmap(content.keyboard.get(i));
             }
 
             // send task image and keyboard, receive user input
@@ -115,47 +124,82 @@ class DvachEmojiCaptchaProvider {
             // if user skipped answer, or made improper input, then we stopping captcha solving
             if (answer == null || answer == -1 || answer >= keyboardImages.length) {
                 return new ChanPerformer.ReadCaptchaResult(ChanPerformer.CaptchaState.NEED_LOAD, null);
-            } else {
-                // if user made a valid selection, we process it
-                // add selected emoji to list of selected
-                Bitmap selectedBitmap = keyboardImages[answer];
-                selected.bitmaps.add(Bitmap.createScaledBitmap(selectedBitmap,
-                        selectedBitmap.getWidth() * SelectedEmojis.SIZE / selectedBitmap.getHeight(),
-                        SelectedEmojis.SIZE, true));
-
-                // send user selection to server
-                try {
-                    Uri uri = locator.buildPath("api", "captcha", "emoji", "click")
-                            .buildUpon().build();
-                    SimpleEntity entity = new SimpleEntity();
-                    entity.setContentType("application/json; charset=utf-8");
-                    JSONObject jsonObject = new JSONObject();
-                    jsonObject.put("captchaTokenId", captchaId);
-                    jsonObject.put("emojiNumber", answer);
-                    entity.setData(jsonObject.toString());
-                    HttpResponse response = new HttpRequest(uri, data)
-                            .setPostMethod(entity).perform();
-
-                    // server returns new response (this is either new state or finish signal)
-                    EmojiCaptchaResponse parsedClickResponse = parseEmojiCaptcha(response);
-
-                    //continue the loop
-                    return solveEmojiCaptchaLoop(parsedClickResponse, selected);
-                } catch (JSONException ex) {
-                    // if something goes wrong, just drop the captcha solving process
-                    return new ChanPerformer.ReadCaptchaResult(ChanPerformer.CaptchaState.NEED_LOAD, null);
-                }
             }
-        } else {
-            // If we got "success" field in server response then we finish the process, and fill
-            // the result
-            EmojiCaptchaResponse.Success success = (EmojiCaptchaResponse.Success) parsedResponse;
-            ChanPerformer.CaptchaData captchaData = new ChanPerformer.CaptchaData();
-            ChanPerformer.ReadCaptchaResult result = new ChanPerformer.ReadCaptchaResult(ChanPerformer.CaptchaState.SKIP, captchaData);
-            // Fill the challenge field with result, to use it later when we send post
-            captchaData.put(ChanPerformer.CaptchaData.CHALLENGE, success.success);
-            return result;
+
+            // if user made a valid selection, we process it
+            // add selected emoji to list of selected
+            selected.add(keyboardImages[answer], captchaImage.getWidth());
+
+            // send user selection to server
+            try {
+                Uri uri = locator.buildPath("api", "captcha", "emoji", "click")
+                        .buildUpon().build();
+                SimpleEntity entity = new SimpleEntity();
+                entity.setContentType("application/json; charset=utf-8");
+                JSONObject jsonObject = new JSONObject();
+                jsonObject.put("captchaTokenId", captchaId);
+                jsonObject.put("emojiNumber", answer);
+                entity.setData(jsonObject.toString());
+                HttpResponse response = new HttpRequest(uri, data)
+                        .setPostMethod(entity).perform();
+
+                // server returns new response (this is either new state or finish signal)
+                parsedResponse = parseEmojiCaptcha(response);
+            } catch (JSONException ex) {
+                // if something goes wrong, just drop the captcha solving process
+                return new ChanPerformer.ReadCaptchaResult(ChanPerformer.CaptchaState.NEED_LOAD, null);
+            }
         }
+
+        // If we got "success" field in server response then we finish the process, and fill
+        // the result
+        EmojiCaptchaResponse.Success success = (EmojiCaptchaResponse.Success) parsedResponse;
+        ChanPerformer.CaptchaData captchaData = new ChanPerformer.CaptchaData();
+        ChanPerformer.ReadCaptchaResult result = new ChanPerformer.ReadCaptchaResult(ChanPerformer.CaptchaState.SKIP, captchaData);
+        // Fill the challenge field with result, to use it later when we send post
+        captchaData.put(ChanPerformer.CaptchaData.CHALLENGE, success.success);
+        return result;
+    }
+
+    /**
+     * Decodes captcha task image. The server usually sends the same task on each step,
+     * so the previous bitmap is reused when the content didn't change.
+     * @param base64 base64 picture, captcha task
+     * @return decoded task image
+     */
+    private Bitmap obtainTaskImage(String base64) {
+        if (taskImage == null || !base64.equals(taskImageBase64)) {
+            if (taskImage != null) {
+                taskImage.recycle();
+            }
+            taskImage = base64ToBitmap(base64);
+            taskImageBase64 = base64;
+        }
+        return taskImage;
+    }
+
+    /**
+     * Returns square keyboard key bitmap with white background, decoding it only if this icon
+     * wasn't shown before.
+     * @param base64 base64 picture, keyboard icon
+     * @return keyboard key bitmap
+     */
+    private Bitmap obtainKeyBitmap(String base64) {
+        Bitmap keyBitmap = keyBitmaps.get(base64);
+        if (keyBitmap == null) {
+            Bitmap origKeyIcon = base64ToBitmap(base64);
+            int maxSize = Math.max(origKeyIcon.getHeight(), origKeyIcon.getWidth());
+            keyBitmap = Bitmap.createBitmap(maxSize, maxSize, Bitmap.Config.ARGB_8888);
+            Canvas keyCanvas = new Canvas(keyBitmap);
+            // set key background to white so the black icon would not overlap with dark theme
+            keyCanvas.drawARGB(255, 255, 255, 255);
+            int x = Math.max((origKeyIcon.getHeight() - origKeyIcon.getWidth()) / 2, 0);
+            int y = Math.max((origKeyIcon.getWidth() - origKeyIcon.getHeight()) / 2, 0);
+            keyCanvas.drawBitmap(origKeyIcon, x, y, null);
+            origKeyIcon.recycle();
+            keyBitmaps.put(base64, keyBitmap);
+        }
+        return keyBitmap;
     }
 
     private HttpResponse doWithRetries(Uri uri, HttpRequest.Preset data, int attempts) throws HttpException {
@@ -231,14 +275,11 @@ class DvachEmojiCaptchaProvider {
 
         // Ensure that captcha has white background, so we will have black
         // selected icons on white canvas, despite of app theme
-        if (!selected.bitmaps.isEmpty()) {
+        if (selected.strip != null) {
             comboImage.drawARGB(255, 255, 255, 255);
+            comboImage.drawBitmap(selected.strip, 0, 0, null);
         }
 
-        for (int i = 0; i < selected.bitmaps.size(); i++) {
-            comboImage.drawBitmap(selected.bitmaps.get(i),
-                    i * SelectedEmojis.SIZE_WITH_PADDING, 0f, null);
-        }
         comboImage.drawBitmap(captchaImage, 0, SelectedEmojis.SIZE_WITH_PADDING, null);
         return comboBitmap;
     }
@@ -263,7 +304,8 @@ class DvachEmojiCaptchaProvider {
 
     /**
      * This class is used for storing previously selected user emojis, to show them in emoji
-     * selection dialog alongside with captcha task
+     * selection dialog alongside with captcha task. Selected emojis are drawn to a single strip
+     * once, so each step only draws the new one.
      */
     private static class SelectedEmojis {
 
@@ -272,7 +314,35 @@ class DvachEmojiCaptchaProvider {
 
         private static final int SIZE_WITH_PADDING = SIZE + PADDING;
 
-        private final List<Bitmap> bitmaps = new ArrayList<>();
+        private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private final Rect rect = new Rect();
+
+        private Bitmap strip;
+        private Canvas canvas;
+        private int count;
+
+        /**
+         * @param emoji selected keyboard key bitmap
+         * @param width strip width, the same as captcha task width
+         */
+        private void add(Bitmap emoji, int width) {
+            if (strip == null) {
+                strip = Bitmap.createBitmap(width, SIZE, Bitmap.Config.ARGB_8888);
+                canvas = new Canvas(strip);
+            }
+            int left = count * SIZE_WITH_PADDING;
+            rect.set(left, 0, left + emoji.getWidth() * SIZE / emoji.getHeight(), SIZE);
+            canvas.drawBitmap(emoji, null, rect, paint);
+            count++;
+        }
+
+        private void recycle() {
+            if (strip != null) {
+                strip.recycle();
+                strip = null;
+                canvas = null;
+            }
+        }
     }
 
 
@@ -2,11 +2,6 @@ package com.mishiranu.dashchan.chan.dvach;
 
 import android.net.Uri;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
 import chan.content.model.Attachment;
 import chan.content.model.EmbeddedAttachment;
 import chan.content.model.FileAttachment;
@@ -20,7 +15,11 @@ import chan.util.StringUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,7 +28,6 @@ public class DvachModelMapper {
 	private static final Pattern PATTERN_BADGE = Pattern.compile("<img.+?src=\"(.+?)\".+?(?:title=\"(.+?)\")?.+?/?>");
 	private static final Pattern PATTERN_CODE = Pattern.compile("\\[code(?:\\s+lang=.+?)?](?:<br ?/?>)*(.+?)" +
 			"(?:<br ?/?>)*\\[/code]", Pattern.CASE_INSENSITIVE);
-	private static final Pattern PATTERN_HASHLINK = Pattern.compile("<a [^<>]*class=\"hashlink\"[^<>]*>");
 	private static final Pattern PATTERN_HASHLINK_TITLE = Pattern.compile("title=\"(.*?)\"");
 
 	public static class Extra {
@@ -172,41 +170,42 @@ public class DvachModelMapper {
 		}
 	}
 
-	private static FileAttachment createFileAttachment(JsonSerial.Reader reader, DvachChanLocator locator,
-			String boardName, String archiveDate) throws IOException, ParseException {
-		FileAttachment fileAttachment = new FileAttachment();
+	private static class FileData {
+		public String path;
+		public String thumbnail;
+		public String originalName;
+		public int size;
+		public int width;
+		public int height;
+	}
+
+	private static FileData readFileData(JsonSerial.Reader reader) throws IOException, ParseException {
+		FileData fileData = new FileData();
 		reader.startObject();
 		while (!reader.endStruct()) {
 			switch (reader.nextName()) {
 				case "path": {
-					String file = fixAttachmentPath(boardName, reader.nextString());
-					Uri fileUri = file != null ? locator.buildPath(archiveDate != null
-							? file.replace("/src/", "/arch/" + archiveDate + "/src/") : file) : null;
-					fileAttachment.setFileUri(locator, fileUri);
+					fileData.path = StringUtils.emptyIfNull(reader.nextString());
 					break;
 				}
 				case "thumbnail": {
-					String thumbnail = fixAttachmentPath(boardName, reader.nextString());
-					Uri thumbnailUri = thumbnail != null ? locator.buildPath(archiveDate != null
-							? thumbnail.replace("/thumb/", "/arch/" + archiveDate + "/thumb/") : thumbnail) : null;
-					fileAttachment.setThumbnailUri(locator, thumbnailUri);
+					fileData.thumbnail = StringUtils.emptyIfNull(reader.nextString());
 					break;
 				}
 				case "fullname": {
-					String originalName = StringUtils.nullIfEmpty(reader.nextString());
-					fileAttachment.setOriginalName(originalName);
+					fileData.originalName = StringUtils.nullIfEmpty(reader.nextString());
 					break;
 				}
 				case "size": {
-					fileAttachment.setSize(reader.nextInt() * 1024);
+					fileData.size = reader.nextInt() * 1024;
 					break;
 				}
 				case "width": {
-					fileAttachment.setWidth(reader.nextInt());
+					fileData.width = reader.nextInt();
 					break;
 				}
 				case "height": {
-					fileAttachment.setHeight(reader.nextInt());
+					fileData.height = reader.nextInt();
 					break;
 				}
 				default: {
@@ -215,153 +214,363 @@ public class DvachModelMapper {
 				}
 			}
 		}
+		return fileData;
+	}
+
+	private static FileAttachment createFileAttachment(FileData fileData, DvachChanLocator locator,
+			String boardName, String archiveDate) {
+		FileAttachment fileAttachment = new FileAttachment();
+		if (fileData.path != null) {
+			String file = fixAttachmentPath(boardName, fileData.path);
+			Uri fileUri = file != null ? locator.buildPath(archiveDate != null
+					? file.replace("/src/", "/arch/" + archiveDate + "/src/") : file) : null;
+			fileAttachment.setFileUri(locator, fileUri);
+		}
+		if (fileData.thumbnail != null) {
+			String thumbnail = fixAttachmentPath(boardName, fileData.thumbnail);
+			Uri thumbnailUri = thumbnail != null ? locator.buildPath(archiveDate != null
+					? thumbnail.replace("/thumb/", "/arch/" + archiveDate + "/thumb/") : thumbnail) : null;
+			fileAttachment.setThumbnailUri(locator, thumbnailUri);
+		}
+		fileAttachment.setOriginalName(fileData.originalName);
+		fileAttachment.setSize(fileData.size);
+		fileAttachment.setWidth(fileData.width);
+		fileAttachment.setHeight(fileData.height);
 		return fileAttachment;
 	}
 
+	private static final long FINGERPRINT_OFFSET = 0xcbf29ce484222325L;
+	private static final long FINGERPRINT_PRIME = 0x100000001b3L;
+
+	// FNV-1a over the raw field values, used to detect unchanged posts without mapping them again
+	private static long fingerprint(long fingerprint, String value) {
+		if (value == null) {
+			return (fingerprint ^ 0xffff) * FINGERPRINT_PRIME;
+		}
+		for (int i = 0, length = value.length(); i < length; i++) {
+			fingerprint = (fingerprint ^ value.charAt(i)) * FINGERPRINT_PRIME;
+		}
+		return (fingerprint ^ 0xfffe) * FINGERPRINT_PRIME;
+	}
+
+	private static long fingerprint(long fingerprint, long value) {
+		for (int i = 0; i < 8; i++) {
+			fingerprint = (fingerprint ^ (value & 0xff)) * FINGERPRINT_PRIME;
+			value >>>= 8;
+		}
+		return fingerprint;
+	}
+
+	public static class PostsCache {
+		private static class Entry {
+			public final long fingerprint;
+			public final Post post;
+
+			public Entry(long fingerprint, Post post) {
+				this.fingerprint = fingerprint;
+				this.post = post;
+			}
+		}
+
+		private HashMap<String, Entry> entries = new HashMap<>();
+
+		private synchronized Post get(String postNumber, long fingerprint) {
+			Entry entry = entries.get(postNumber);
+			return entry != null && entry.fingerprint == fingerprint ? entry.post : null;
+		}
+
+		private synchronized void update(HashMap<String, Entry> entries, boolean fullThread) {
+			if (fullThread) {
+				// Drop deleted posts
+				this.entries = entries;
+			} else {
+				this.entries.putAll(entries);
+			}
+		}
+
+		private synchronized void retain(HashSet<String> postNumbers) {
+			entries.keySet().retainAll(postNumbers);
+		}
+	}
+
+	private static final String COMMENT_OP_LINK_END = " (OP)</a>";
+	private static final String COMMENT_ARROW_LINK_END = " \u2192</a>";
+	private static final String COMMENT_ARROW_OP_LINK_END = " \u2192 (OP)</a>";
+	private static final String COMMENT_SLASH = "&#47;";
+	private static final String COMMENT_LINK_START = "<a ";
+	private static final String COMMENT_HASHLINK_CLASS = "class=\"hashlink\"";
+
+	// Single pass equivalent of replacing " (OP)</a>", " \u2192</a>" and "&#47;" one after another
+	// and then rewriting <a class="hashlink"> tags to catalog search links
+	private static String transformComment(String comment, DvachChanLocator locator, String boardName) {
+		StringBuilder builder = null;
+		int length = comment.length();
+		int copied = 0;
+		int i = 0;
+		while (i < length) {
+			char c = comment.charAt(i);
+			String replacement = null;
+			int end = i;
+			if (c == ' ') {
+				if (comment.startsWith(COMMENT_ARROW_LINK_END, i)) {
+					replacement = "</a>";
+					end = i + COMMENT_ARROW_LINK_END.length();
+				} else if (comment.startsWith(COMMENT_ARROW_OP_LINK_END, i)) {
+					// " (OP)" removal exposes " \u2192</a>" which is removed as well
+					replacement = "</a>";
+					end = i + COMMENT_ARROW_OP_LINK_END.length();
+				} else if (comment.startsWith(COMMENT_OP_LINK_END, i)) {
+					replacement = "</a>";
+					end = i + COMMENT_OP_LINK_END.length();
+				}
+			} else if (c == '&') {
+				if (comment.startsWith(COMMENT_SLASH, i)) {
+					replacement = "/";
+					end = i + COMMENT_SLASH.length();
+				}
+			} else if (c == '<' && comment.startsWith(COMMENT_LINK_START, i)) {
+				int tagEnd = -1;
+				for (int j = i + COMMENT_LINK_START.length(); j < length; j++) {
+					char t = comment.charAt(j);
+					if (t == '>') {
+						tagEnd = j + 1;
+						break;
+					} else if (t == '<') {
+						break;
+					}
+				}
+				boolean hashlink = false;
+				if (tagEnd >= 0) {
+					// Look for the class only inside the tag to keep the pass linear
+					for (int j = i + COMMENT_LINK_START.length();
+							j + COMMENT_HASHLINK_CLASS.length() < tagEnd; j++) {
+						if (comment.startsWith(COMMENT_HASHLINK_CLASS, j)) {
+							hashlink = true;
+							break;
+						}
+					}
+				}
+				if (hashlink) {
+					String tag = comment.substring(i, tagEnd).replace(COMMENT_SLASH, "/");
+					Matcher matcher = PATTERN_HASHLINK_TITLE.matcher(tag);
+					if (matcher.find()) {
+						Uri uri = locator.createCatalogSearchUri(boardName, matcher.group(1));
+						String encodedUri = uri.toString().replace("&", "&amp;").replace("\"", "&quot;");
+						replacement = "<a href=\"" + encodedUri + "\">";
+					} else {
+						replacement = tag;
+					}
+					end = tagEnd;
+				}
+			}
+			if (replacement != null) {
+				if (builder == null) {
+					builder = new StringBuilder(length);
+				}
+				builder.append(comment, copied, i).append(replacement);
+				copied = end;
+				i = end;
+			} else {
+				i++;
+			}
+		}
+		if (builder == null) {
+			return comment;
+		}
+		builder.append(comment, copied, length);
+		return builder.toString();
+	}
+
+	private static final String USER_AGENT_UNKNOWN = "Неизвестно";
+	private static final int MAX_USER_AGENT_ICONS = 100;
+	private static final Icon[] NO_ICONS = new Icon[0];
+
+	// The set of distinct OS and browser pairs is small, so icons are shared between posts
+	private static final LinkedHashMap<String, Icon[]> USER_AGENT_ICONS =
+			new LinkedHashMap<String, Icon[]>(MAX_USER_AGENT_ICONS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Icon[]> eldest) {
+			return size() > MAX_USER_AGENT_ICONS;
+		}
+	};
+
+	private static Icon[] obtainUserAgentIcons(String userAgentData, DvachChanLocator locator,
+			DvachChanConfiguration configuration) {
+		int index1 = userAgentData.indexOf('(');
+		int index2 = userAgentData.indexOf(')');
+		if (index2 <= index1 || index1 < 0) {
+			return NO_ICONS;
+		}
+		userAgentData = userAgentData.substring(index1 + 1, index2);
+		Icon[] icons;
+		synchronized (USER_AGENT_ICONS) {
+			icons = USER_AGENT_ICONS.get(userAgentData);
+		}
+		if (icons == null) {
+			icons = createUserAgentIcons(userAgentData, locator, configuration);
+			synchronized (USER_AGENT_ICONS) {
+				USER_AGENT_ICONS.put(userAgentData, icons);
+			}
+		}
+		return icons;
+	}
+
+	private static Icon[] createUserAgentIcons(String userAgentData, DvachChanLocator locator,
+			DvachChanConfiguration configuration) {
+		int index = userAgentData.indexOf(':');
+		if (index < 0) {
+			return NO_ICONS;
+		}
+		String os = StringUtils.clearHtml(userAgentData.substring(0, index));
+		String browser = StringUtils.clearHtml(userAgentData.substring(index + 2));
+		ArrayList<Icon> icons = new ArrayList<>(2);
+		if (!USER_AGENT_UNKNOWN.equals(os)) {
+			int osIconResId = R.raw.raw_os;
+			if (os.contains("Windows")) {
+				osIconResId = R.raw.raw_os_windows;
+			} else if (os.contains("Linux")) {
+				osIconResId = R.raw.raw_os_linux;
+			} else if (os.contains("Apple")) {
+				osIconResId = R.raw.raw_os_apple;
+			} else if (os.contains("Android")) {
+				osIconResId = R.raw.raw_os_android;
+			}
+			icons.add(new Icon(locator, configuration.getResourceUri(osIconResId), os));
+		}
+		if (!USER_AGENT_UNKNOWN.equals(browser)) {
+			int browserIconResId = R.raw.raw_browser;
+			if (browser.contains("Chrom")) {
+				browserIconResId = R.raw.raw_browser_chrome;
+			} else if (browser.contains("Microsoft Edge")) {
+				browserIconResId = R.raw.raw_browser_edge;
+			} else if (browser.contains("Internet Explorer")) {
+				browserIconResId = R.raw.raw_browser_edge;
+			} else if (browser.contains("Firefox")) {
+				browserIconResId = R.raw.raw_browser_firefox;
+			} else if (browser.contains("Iceweasel")) {
+				browserIconResId = R.raw.raw_browser_firefox;
+			} else if (browser.contains("Opera")) {
+				browserIconResId = R.raw.raw_browser_opera;
+			} else if (browser.contains("Safari")) {
+				browserIconResId = R.raw.raw_browser_safari;
+			}
+			icons.add(new Icon(locator, configuration.getResourceUri(browserIconResId), browser));
+		}
+		return icons.toArray(NO_ICONS);
+	}
+
 	public static Post createPost(JsonSerial.Reader reader, Object linked, String boardName,
 			String archiveDate, boolean sageEnabled, Extra extra) throws IOException, ParseException {
-		DvachChanLocator locator = DvachChanLocator.get(linked);
-		DvachChanConfiguration configuration = DvachChanConfiguration.get(linked);
-		Post post = new Post();
-		String subject = null;
-		String tags = null;
-		String comment = null;
-		String name = null;
-		String tripcode = null;
-		ArrayList<Icon> icons = null;
-		int likes = 0;
-		int dislikes = 0;
+		return createPost(reader, linked, boardName, archiveDate, sageEnabled, extra, null, null);
+	}
 
+	private static Post createPost(JsonSerial.Reader reader, Object linked, String boardName,
+			String archiveDate, boolean sageEnabled, Extra extra, PostsCache cache,
+			HashMap<String, PostsCache.Entry> mappedEntries) throws IOException, ParseException {
+		PostData postData = readPostData(reader, linked, boardName, sageEnabled, extra);
+		return createPost(postData, linked, boardName, archiveDate, sageEnabled, cache, mappedEntries);
+	}
+
+	private static class PostData {
+		public String postNumber;
+		public String parentPostNumber;
+		public boolean originalPoster;
+		public boolean sticky;
+		public boolean closed;
+		public boolean cyclical;
+		public int banned;
+		public long timestamp;
+		public String subject;
+		public String tags;
+		public String comment;
+		public String name;
+		public String tripcode;
+		public String email;
+		public String icon;
+		public ArrayList<FileData> files;
+		public int likes;
+		public int dislikes;
+	}
+
+	private static PostData readPostData(JsonSerial.Reader reader, Object linked, String boardName,
+			boolean sageEnabled, Extra extra) throws IOException, ParseException {
+		PostData postData = new PostData();
 		reader.startObject();
 		while (!reader.endStruct()) {
 			switch (reader.nextName()) {
 				case "num": {
-					post.setPostNumber(reader.nextString());
+					postData.postNumber = reader.nextString();
 					break;
 				}
 				case "parent": {
 					String parent = reader.nextString();
 					if (!"0".equals(parent)) {
-						post.setParentPostNumber(parent);
+						postData.parentPostNumber = parent;
 					}
 					break;
 				}
 				case "op": {
-					post.setOriginalPoster(reader.nextBoolean());
+					postData.originalPoster = reader.nextBoolean();
 					break;
 				}
 				case "sticky": {
-					post.setSticky(reader.nextBoolean());
+					postData.sticky = reader.nextBoolean();
 					break;
 				}
 				case "closed": {
-					post.setClosed(reader.nextBoolean());
+					postData.closed = reader.nextBoolean();
 					break;
 				}
 				case "endless": {
-					post.setCyclical(reader.nextBoolean());
+					postData.cyclical = reader.nextBoolean();
 					break;
 				}
 				case "banned": {
-					int banned = reader.nextInt();
-					if (banned == 1) {
-						post.setPosterBanned(true);
-					} else if (banned == 2) {
-						post.setPosterWarned(true);
-					}
+					postData.banned = reader.nextInt();
 					break;
 				}
 				case "timestamp": {
-					post.setTimestamp(reader.nextLong() * 1000L);
+					postData.timestamp = reader.nextLong() * 1000L;
 					break;
 				}
 				case "subject": {
-					subject = reader.nextString();
-					if (!StringUtils.isEmpty(subject)) {
-						subject = StringUtils.clearHtml(subject).trim();
-					}
+					postData.subject = reader.nextString();
 					break;
 				}
 				case "comment": {
-					comment = reader.nextString();
-					if (!StringUtils.isEmpty(comment)) {
-						comment = comment.replace(" (OP)</a>", "</a>");
-						comment = comment.replace(" \u2192</a>", "</a>");
-						comment = comment.replace("&#47;", "/");
-					}
-					if (comment.contains("\"hashlink\"")) {
-						comment = StringUtils.replaceAll(comment, PATTERN_HASHLINK, matcher -> {
-							String title = null;
-							Matcher matcher2 = PATTERN_HASHLINK_TITLE.matcher(matcher.group());
-							if (matcher2.find()) {
-								title = matcher2.group(1);
-							}
-							if (title != null) {
-								Uri uri = locator.createCatalogSearchUri(boardName, title);
-								String encodedUri = uri.toString().replace("&", "&amp;").replace("\"", "&quot;");
-								return "<a href=\"" + encodedUri + "\">";
-							} else {
-								return matcher.group();
-							}
-						});
-					}
-					if ("pr".equals(boardName) && comment.contains("[code")) {
-						comment = PATTERN_CODE.matcher(comment).replaceAll("<fakecode>$1</fakecode>");
-					}
+					postData.comment = reader.nextString();
 					break;
 				}
 				case "name": {
-					name = reader.nextString();
+					postData.name = reader.nextString();
 					break;
 				}
 				case "trip": {
-					tripcode = reader.nextString();
+					postData.tripcode = reader.nextString();
 					break;
 				}
 				case "email": {
-					String email = reader.nextString();
-					boolean sage = sageEnabled && !StringUtils.isEmpty(email) && email.equals("mailto:sage");
-					if (sage) {
-						post.setSage(true);
-					} else {
-						post.setEmail(email);
-					}
+					postData.email = reader.nextString();
 					break;
 				}
 				case "files": {
-					ArrayList<Attachment> attachments = null;
 					reader.startArray();
 					while (!reader.endStruct()) {
-						if (attachments == null) {
-							attachments = new ArrayList<>();
+						if (postData.files == null) {
+							postData.files = new ArrayList<>();
 						}
-						attachments.add(createFileAttachment(reader, locator, boardName, archiveDate));
+						postData.files.add(readFileData(reader));
 					}
-					post.setAttachments(attachments);
 					break;
 				}
 				case "icon": {
-					Matcher matcher = PATTERN_BADGE.matcher(reader.nextString());
-					while (matcher.find()) {
-						String path = matcher.group(1);
-						String title = matcher.group(2);
-						Uri uri = locator.buildPath(path);
-						if (StringUtils.isEmpty(title)) {
-							title = uri.getLastPathSegment();
-							title = title.substring(0, title.lastIndexOf('.'));
-						}
-						if (icons == null) {
-							icons = new ArrayList<>();
-						}
-						title = StringUtils.clearHtml(title);
-						icons.add(new Icon(locator, uri, title));
-					}
+					postData.icon = reader.nextString();
 					break;
 				}
 				case "tags": {
-					tags = reader.nextString();
+					postData.tags = reader.nextString();
 					if (extra != null) {
-						extra.tags = tags;
+						extra.tags = postData.tags;
 					}
 					break;
 				}
@@ -387,7 +596,7 @@ public class DvachModelMapper {
 						extra.hasPosts = true;
 						reader.startArray();
 						while (!reader.endStruct()) {
-							extra.posts.add(createPost(reader, locator, boardName, null, sageEnabled, null));
+							extra.posts.add(createPost(reader, linked, boardName, null, sageEnabled, null));
 						}
 					} else {
 						reader.skip();
@@ -395,11 +604,11 @@ public class DvachModelMapper {
 					break;
 				}
 				case "likes": {
-					likes = reader.nextInt();
+					postData.likes = reader.nextInt();
 					break;
 				}
 				case "dislikes": {
-					dislikes = reader.nextInt();
+					postData.dislikes = reader.nextInt();
 					break;
 				}
 				default: {
@@ -408,6 +617,108 @@ public class DvachModelMapper {
 				}
 			}
 		}
+		return postData;
+	}
+
+	private static Post createPost(PostData postData, Object linked, String boardName, String archiveDate,
+			boolean sageEnabled, PostsCache cache, HashMap<String, PostsCache.Entry> mappedEntries) {
+		long fingerprint = 0;
+		if (cache != null) {
+			fingerprint = fingerprint(FINGERPRINT_OFFSET, boardName);
+			fingerprint = fingerprint(fingerprint, archiveDate);
+			fingerprint = fingerprint(fingerprint, sageEnabled ? 1 : 0);
+			fingerprint = fingerprint(fingerprint, postData.parentPostNumber);
+			fingerprint = fingerprint(fingerprint, postData.timestamp);
+			fingerprint = fingerprint(fingerprint, postData.subject);
+			fingerprint = fingerprint(fingerprint, postData.tags);
+			fingerprint = fingerprint(fingerprint, postData.comment);
+			fingerprint = fingerprint(fingerprint, postData.name);
+			fingerprint = fingerprint(fingerprint, postData.tripcode);
+			fingerprint = fingerprint(fingerprint, postData.email);
+			fingerprint = fingerprint(fingerprint, postData.icon);
+			if (postData.files != null) {
+				for (FileData fileData : postData.files) {
+					fingerprint = fingerprint(fingerprint, fileData.path);
+					fingerprint = fingerprint(fingerprint, fileData.thumbnail);
+					fingerprint = fingerprint(fingerprint, fileData.originalName);
+					fingerprint = fingerprint(fingerprint, fileData.size);
+					fingerprint = fingerprint(fingerprint, ((long) fileData.width << 32) | fileData.height);
+				}
+			}
+			fingerprint = fingerprint(fingerprint, ((long) postData.likes << 32) | (postData.dislikes & 0xffffffffL));
+			fingerprint = fingerprint(fingerprint, (postData.originalPoster ? 0x01 : 0) |
+					(postData.sticky ? 0x02 : 0) | (postData.closed ? 0x04 : 0) |
+					(postData.cyclical ? 0x08 : 0) | ((long) postData.banned << 8));
+			String postNumber = postData.postNumber;
+			Post cachedPost = postNumber != null ? cache.get(postNumber, fingerprint) : null;
+			if (cachedPost != null) {
+				mappedEntries.put(postNumber, new PostsCache.Entry(fingerprint, cachedPost));
+				return cachedPost;
+			}
+		}
+
+		DvachChanLocator locator = DvachChanLocator.get(linked);
+		DvachChanConfiguration configuration = DvachChanConfiguration.get(linked);
+		Post post = new Post();
+		post.setPostNumber(postData.postNumber);
+		post.setParentPostNumber(postData.parentPostNumber);
+		post.setOriginalPoster(postData.originalPoster);
+		post.setSticky(postData.sticky);
+		post.setClosed(postData.closed);
+		post.setCyclical(postData.cyclical);
+		if (postData.banned == 1) {
+			post.setPosterBanned(true);
+		} else if (postData.banned == 2) {
+			post.setPosterWarned(true);
+		}
+		post.setTimestamp(postData.timestamp);
+		String email = postData.email;
+		boolean sage = sageEnabled && !StringUtils.isEmpty(email) && email.equals("mailto:sage");
+		if (sage) {
+			post.setSage(true);
+		} else {
+			post.setEmail(email);
+		}
+		String subject = postData.subject;
+		String tags = postData.tags;
+		String comment = postData.comment;
+		String name = postData.name;
+		String tripcode = postData.tripcode;
+		ArrayList<Icon> icons = null;
+
+		if (!StringUtils.isEmpty(subject)) {
+			subject = StringUtils.clearHtml(subject).trim();
+		}
+		if (!StringUtils.isEmpty(comment)) {
+			comment = transformComment(comment, locator, boardName);
+			if ("pr".equals(boardName) && comment.contains("[code")) {
+				comment = PATTERN_CODE.matcher(comment).replaceAll("<fakecode>$1</fakecode>");
+			}
+		}
+		if (postData.files != null) {
+			ArrayList<Attachment> attachments = new ArrayList<>(postData.files.size());
+			for (FileData fileData : postData.files) {
+				attachments.add(createFileAttachment(fileData, locator, boardName, archiveDate));
+			}
+			post.setAttachments(attachments);
+		}
+		if (postData.icon != null) {
+			Matcher matcher = PATTERN_BADGE.matcher(postData.icon);
+			while (matcher.find()) {
+				String path = matcher.group(1);
+				String title = matcher.group(2);
+				Uri uri = locator.buildPath(path);
+				if (StringUtils.isEmpty(title)) {
+					title = uri.getLastPathSegment();
+					title = title.substring(0, title.lastIndexOf('.'));
+				}
+				if (icons == null) {
+					icons = new ArrayList<>();
+				}
+				title = StringUtils.clearHtml(title);
+				icons.add(new Icon(locator, uri, title));
+			}
+		}
 
 		// TODO Remove this after server side fix of subjects
 		if (post.getParentPostNumber() == null && subject != null) {
@@ -465,89 +776,93 @@ public class DvachModelMapper {
 		post.setTripcode(tripcode);
 		post.setCapcode(capcode);
 
-		if (likes != 0 || dislikes != 0) {
-			post.setVote(likes, dislikes);
+		if (postData.likes != 0 || postData.dislikes != 0) {
+			post.setVote(postData.likes, postData.dislikes);
 		}
 
 		if (userAgentData != null) {
-			int index1 = userAgentData.indexOf('(');
-			int index2 = userAgentData.indexOf(')');
-			if (index2 > index1 && index1 >= 0) {
-				userAgentData = userAgentData.substring(index1 + 1, index2);
-				int index = userAgentData.indexOf(':');
-				if (index >= 0) {
-					String os = StringUtils.clearHtml(userAgentData.substring(0, index));
-					String browser = StringUtils.clearHtml(userAgentData.substring(index + 2));
-					if (!"Неизвестно".equals(os)) {
-						int osIconResId = R.raw.raw_os;
-						if (os.contains("Windows")) {
-							osIconResId = R.raw.raw_os_windows;
-						} else if (os.contains("Linux")) {
-							osIconResId = R.raw.raw_os_linux;
-						} else if (os.contains("Apple")) {
-							osIconResId = R.raw.raw_os_apple;
-						} else if (os.contains("Android")) {
-							osIconResId = R.raw.raw_os_android;
-						}
-						if (icons == null) {
-							icons = new ArrayList<>();
-						}
-						icons.add(new Icon(locator, configuration.getResourceUri(osIconResId), os));
-					}
-					if (!"Неизвестно".equals(browser)) {
-						int browserIconResId = R.raw.raw_browser;
-						if (browser.contains("Chrom")) {
-							browserIconResId = R.raw.raw_browser_chrome;
-						} else if (browser.contains("Microsoft Edge")) {
-							browserIconResId = R.raw.raw_browser_edge;
-						} else if (browser.contains("Internet Explorer")) {
-							browserIconResId = R.raw.raw_browser_edge;
-						} else if (browser.contains("Firefox")) {
-							browserIconResId = R.raw.raw_browser_firefox;
-						} else if (browser.contains("Iceweasel")) {
-							browserIconResId = R.raw.raw_browser_firefox;
-						} else if (browser.contains("Opera")) {
-							browserIconResId = R.raw.raw_browser_opera;
-						} else if (browser.contains("Safari")) {
-							browserIconResId = R.raw.raw_browser_safari;
-						}
-						if (icons == null) {
-							icons = new ArrayList<>();
-						}
-						icons.add(new Icon(locator, configuration.getResourceUri(browserIconResId), browser));
-					}
+			Icon[] userAgentIcons = obtainUserAgentIcons(userAgentData, locator, configuration);
+			if (userAgentIcons.length > 0) {
+				if (icons == null) {
+					icons = new ArrayList<>();
 				}
+				Collections.addAll(icons, userAgentIcons);
 			}
 		}
 		post.setIcons(icons);
+		if (cache != null && post.getPostNumber() != null) {
+			mappedEntries.put(post.getPostNumber(), new PostsCache.Entry(fingerprint, post));
+		}
 		return post;
 	}
 
 	public static ArrayList<Post> createPosts(JsonSerial.Reader reader, Object linked, String boardName,
 			String archiveDate, boolean sageEnabled, Extra extra) throws IOException, ParseException {
+		return createPosts(reader, linked, boardName, archiveDate, sageEnabled, extra, null, false);
+	}
+
+	public static ArrayList<Post> createPosts(JsonSerial.Reader reader, Object linked, String boardName,
+			String archiveDate, boolean sageEnabled, Extra extra, PostsCache cache, boolean fullThread)
+			throws IOException, ParseException {
 		boolean firstPost = true;
 		ArrayList<Post> posts = new ArrayList<>();
+		HashMap<String, PostsCache.Entry> mappedEntries = cache != null ? new HashMap<>() : null;
 		reader.startArray();
 		while (!reader.endStruct()) {
-			posts.add(createPost(reader, linked, boardName, archiveDate, sageEnabled, firstPost ? extra : null));
+			posts.add(createPost(reader, linked, boardName, archiveDate, sageEnabled, firstPost ? extra : null,
+					cache, mappedEntries));
 			firstPost = false;
 		}
+		if (cache != null) {
+			cache.update(mappedEntries, fullThread);
+		}
 		if (archiveDate != null && !posts.isEmpty()) {
 			posts.get(0).setArchived(true);
 		}
 		return posts;
 	}
 
-	public static List<String> createPostsFromHtml(String html) {
+	public static class CatalogThread {
+		public final String threadNumber;
+		public final String tags;
+		public final int postsCount;
+
+		private final PostData postData;
 
-		List<String> posts = new ArrayList<>();
-		Document doc = Jsoup.parse(html);
-		Elements elements = doc.select("div.box");
+		private CatalogThread(PostData postData, int postsCount) {
+			this.threadNumber = postData.postNumber;
+			this.tags = postData.tags;
+			this.postsCount = postsCount;
+			this.postData = postData;
+		}
+	}
 
-		for (Element el : elements) {
-			posts.add(el.id().split("post-")[1]);
+	// Only raw fields are read here, threads are mapped to posts on demand with createCatalogPosts
+	public static ArrayList<CatalogThread> createCatalog(JsonSerial.Reader reader, Object linked, String boardName,
+			boolean sageEnabled, PostsCache cache) throws IOException, ParseException {
+		ArrayList<CatalogThread> threads = new ArrayList<>();
+		HashSet<String> threadNumbers = new HashSet<>();
+		reader.startArray();
+		while (!reader.endStruct()) {
+			Extra extra = new Extra();
+			PostData postData = readPostData(reader, linked, boardName, sageEnabled, extra);
+			// posts_count doesn't include the original post
+			threads.add(new CatalogThread(postData, extra.postsCount + 1));
+			threadNumbers.add(postData.postNumber);
 		}
+		// Drop threads which are gone from the catalog
+		cache.retain(threadNumbers);
+		return threads;
+	}
 
+	public static ArrayList<Post> createCatalogPosts(List<CatalogThread> threads, Object linked, String boardName,
+			boolean sageEnabled, PostsCache cache) {
+		ArrayList<Post> posts = new ArrayList<>(threads.size());
+		HashMap<String, PostsCache.Entry> mappedEntries = new HashMap<>();
+		for (CatalogThread thread : threads) {
+			posts.add(createPost(thread.postData, linked, boardName, null, sageEnabled, cache, mappedEntries));
+		}
+		cache.update(mappedEntries, false);
 		return posts;
 	}
 
@@ -0,0 +1,45 @@
+package com.mishiranu.dashchan.chan.dvach;
+
+import chan.text.ParseException;
+import chan.text.TemplateParser;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DvachSearchPostsParser {
+	private static final String ID_PREFIX = "post-";
+
+	private final ArrayList<String> postsNumbers = new ArrayList<>();
+
+	public List<String> parse(InputStream input) throws IOException, ParseException {
+		PARSER.parse(new InputStreamReader(input), this);
+		return postsNumbers;
+	}
+
+	private static boolean hasClass(String classNames, String className) {
+		if (classNames != null) {
+			for (String name : classNames.split("\\s+")) {
+				if (name.equals(className)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static final TemplateParser<DvachSearchPostsParser> PARSER = TemplateParser
+			.<DvachSearchPostsParser>builder()
+			.starts("div", "id", ID_PREFIX)
+			.open((instance, holder, tagName, attributes) -> {
+				if (hasClass(attributes.get("class"), "box")) {
+					String postNumber = attributes.get("id").substring(ID_PREFIX.length());
+					if (!postNumber.isEmpty()) {
+						holder.postsNumbers.add(postNumber);
+					}
+				}
+				return false;
+			})
+			.prepare();
+}
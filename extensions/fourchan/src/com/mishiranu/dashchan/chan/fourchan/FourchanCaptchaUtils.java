@@ -4,52 +4,141 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Paint;
-import java.util.ArrayList;
 import java.util.Arrays;
 
 public class FourchanCaptchaUtils {
+	private static final int OFFSET_MIN_STEP = 3;
+
 	public static Integer findCenterOffset(Bitmap image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = new int[width * height];
+		image.getPixels(pixels, 0, width, 0, 0, width, height);
+		// Count transparent pixels per column in a single row-major pass
+		int[] emptyCounts = new int[width];
+		for (int y = 0, index = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (pixels[index++] >> 24 == 0) {
+					emptyCounts[x]++;
+				}
+			}
+		}
 		// Find offset of central non-empty space to the center of the image
 		// Array structure: [non-empty, empty, non-empty, empty, ..., non-empty]
-		ArrayList<Integer> ranges = new ArrayList<>();
+		int[] ranges = new int[width + 2];
+		int rangesCount = 0;
 		boolean empty = false;
 		int rangeLength = 0;
-		int[] line = new int[image.getHeight()];
-		for (int i = 0; i < image.getWidth(); i++) {
-			image.getPixels(line, 0, 1, i, 0, 1, line.length);
-			int emptyCount = 0;
-			for (int c : line) {
-				if (c >> 24 == 0) {
-					emptyCount++;
-				}
-			}
-			boolean itEmpty = emptyCount >= 10;
+		for (int i = 0; i < width; i++) {
+			boolean itEmpty = emptyCounts[i] >= 10;
 			if (itEmpty == empty) {
 				rangeLength++;
 			} else {
 				empty = itEmpty;
-				ranges.add(rangeLength);
+				ranges[rangesCount++] = rangeLength;
 				rangeLength = 1;
 			}
 		}
-		ranges.add(rangeLength);
+		ranges[rangesCount++] = rangeLength;
 		if (empty) {
-			ranges.add(0);
+			ranges[rangesCount++] = 0;
 		}
 		// Length should always be an odd number
-		if (ranges.size() % 2 != 1) {
+		if (rangesCount % 2 != 1) {
 			throw new IllegalStateException();
 		}
-		if (ranges.size() == 1) {
+		if (rangesCount == 1) {
 			return null;
 		} else {
-			int centerIndex = ranges.size() / 2;
-			int cx = (ranges.get(centerIndex - 1) + ranges.get(centerIndex) + ranges.get(centerIndex + 1)) / 2;
+			int centerIndex = rangesCount / 2;
+			int cx = (ranges[centerIndex - 1] + ranges[centerIndex] + ranges[centerIndex + 1]) / 2;
 			for (int i = 0; i < centerIndex - 1; i++) {
-				cx += ranges.get(i);
+				cx += ranges[i];
+			}
+			return width / 2 - cx;
+		}
+	}
+
+	private static int getLuma(int color) {
+		return ((color >> 16 & 0xff) + 2 * (color >> 8 & 0xff) + (color & 0xff)) >> 2;
+	}
+
+	public static int[] estimateOffsets(Bitmap image, Bitmap background, int maxCount) {
+		// Score every background offset by color continuity along the edges of image transparent areas:
+		// when the layers are aligned, background pixels visible through the holes continue the image strokes
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int backgroundWidth = background.getWidth();
+		int[] pixels = new int[width * height];
+		image.getPixels(pixels, 0, width, 0, 0, width, height);
+		int[] backgroundPixels = new int[backgroundWidth * height];
+		background.getPixels(backgroundPixels, 0, backgroundWidth, 0, 0, backgroundWidth, height);
+		for (int i = 0; i < backgroundPixels.length; i++) {
+			backgroundPixels[i] = getLuma(backgroundPixels[i]);
+		}
+		// Edge pairs: luma of the opaque image pixel and background index of its transparent neighbor
+		int[] edgeLumas = new int[64];
+		int[] edgeIndexes = new int[64];
+		int edgeCount = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int color = pixels[y * width + x];
+				if (color >>> 24 == 0) {
+					continue;
+				}
+				int luma = getLuma(color);
+				for (int i = 0; i < 4; i++) {
+					int nx = i == 0 ? x - 1 : i == 1 ? x + 1 : x;
+					int ny = i == 2 ? y - 1 : i == 3 ? y + 1 : y;
+					if (nx >= 0 && nx < width && ny >= 0 && ny < height && pixels[ny * width + nx] >>> 24 == 0) {
+						if (edgeCount == edgeLumas.length) {
+							edgeLumas = Arrays.copyOf(edgeLumas, 2 * edgeCount);
+							edgeIndexes = Arrays.copyOf(edgeIndexes, 2 * edgeCount);
+						}
+						edgeLumas[edgeCount] = luma;
+						edgeIndexes[edgeCount] = ny * backgroundWidth + nx;
+						edgeCount++;
+					}
+				}
+			}
+		}
+		int shifts = backgroundWidth - width + 1;
+		if (edgeCount == 0 || shifts <= 0) {
+			return new int[0];
+		}
+		long[] scores = new long[shifts];
+		for (int dx = 0; dx < shifts; dx++) {
+			long score = 0;
+			for (int i = 0; i < edgeCount; i++) {
+				score += Math.abs(edgeLumas[i] - backgroundPixels[edgeIndexes[i] + dx]);
+			}
+			scores[dx] = score;
+		}
+		// Pick the best distinct shifts, close runner-ups are offered to the user as well
+		int[] result = new int[maxCount];
+		int count = 0;
+		long bestScore = -1;
+		boolean[] excluded = new boolean[shifts];
+		while (count < maxCount) {
+			int best = -1;
+			for (int dx = 0; dx < shifts; dx++) {
+				if (!excluded[dx] && (best < 0 || scores[dx] < scores[best])) {
+					best = dx;
+				}
+			}
+			if (best < 0 || bestScore >= 0 && scores[best] - bestScore > bestScore / 4) {
+				break;
+			}
+			if (bestScore < 0) {
+				bestScore = scores[best];
+			}
+			for (int dx = Math.max(0, best - OFFSET_MIN_STEP + 1);
+					dx < Math.min(shifts, best + OFFSET_MIN_STEP); dx++) {
+				excluded[dx] = true;
 			}
-			return image.getWidth() / 2 - cx;
+			result[count++] = -best;
 		}
+		return Arrays.copyOf(result, count);
 	}
 
 	public interface BinarySearchCallback<T extends Throwable> {
@@ -60,7 +149,7 @@ public class FourchanCaptchaUtils {
 			int maxCount, int baseOffset, BinarySearchCallback<T> callback) throws T {
 		int min = 0;
 		int max = background.getWidth() - image.getWidth();
-		int minStep = 3;
+		int minStep = OFFSET_MIN_STEP;
 		Bitmap[] bitmaps = new Bitmap[maxCount];
 		Canvas[] canvases = new Canvas[maxCount];
 		try {
@@ -24,11 +24,13 @@ public class FourchanChanConfiguration extends ChanConfiguration {
 	private static final String KEY_MAX_COMMENT_LENGTH = "max_comment_length";
 	private static final String KEY_SAFE_FOR_WORK = "safe_for_work";
 	private static final String KEY_REPORT_REASONS = "report_reasons";
+	private static final String KEY_BOARD_STATE = "board_state";
 
 	private static final String KEY_MATH_TAGS = "math_tags";
 
 	public FourchanChanConfiguration() {
 		request(OPTION_READ_THREAD_PARTIALLY);
+		request(OPTION_READ_POSTS_COUNT);
 		request(OPTION_ALLOW_CAPTCHA_PASS);
 		setDefaultName("Anonymous");
 		setBumpLimit(300);
@@ -238,6 +240,13 @@ public class FourchanChanConfiguration extends ChanConfiguration {
 					}
 				}
 			}
+			// Skip storage writes when nothing has changed since the last update
+			String state = areSpoilersEnabled + "," + isCodeEnabled + "," + areFlagsEnabled + "," +
+					bumpLimit + "," + maxCommentLength + "," + safeForWork + "," +
+					(boardFlags != null ? boardFlags.toString() : "");
+			if (state.equals(get(boardName, KEY_BOARD_STATE, null))) {
+				return new chan.content.model.Board(boardName, title, description);
+			}
 			set(boardName, KEY_SPOILERS_ENABLED, areSpoilersEnabled);
 			set(boardName, KEY_CODE_ENABLED, isCodeEnabled);
 			set(boardName, KEY_FLAGS_ENABLED, areFlagsEnabled);
@@ -253,6 +262,7 @@ public class FourchanChanConfiguration extends ChanConfiguration {
 				set(boardName, KEY_MAX_COMMENT_LENGTH, maxCommentLength);
 			}
 			set(boardName, KEY_SAFE_FOR_WORK, safeForWork);
+			set(boardName, KEY_BOARD_STATE, state);
 			return new chan.content.model.Board(boardName, title, description);
 		}
 		return null;
@@ -40,6 +40,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.json.JSONException;
@@ -53,15 +59,15 @@ public class FourchanChanPerformer extends ChanPerformer {
 
 	private static final String COOKIE_FOURCHAN_PASS = "4chan_pass";
 
-	private final HashMap<String, Long> lastRulesUpdate = new HashMap<>();
+	private static final long RULES_UPDATE_INTERVAL = 24 * 60 * 60 * 1000;
 
-	private void updateBoardRules(HttpRequest.Preset preset,
-			String boardName, List<Posts> threads) throws HttpException {
-		Long update;
-		synchronized (lastRulesUpdate) {
-			update = lastRulesUpdate.get(boardName);
-		}
-		if (update != null && update + 24 * 60 * 60 * 1000 > SystemClock.elapsedRealtime()) {
+	private final ConcurrentHashMap<String, Long> lastRulesUpdate = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Boolean> rulesUpdates = new ConcurrentHashMap<>();
+
+	private void updateBoardRules(HttpRequest.Preset preset, String boardName, List<Posts> threads)
+			throws HttpException {
+		Long update = lastRulesUpdate.get(boardName);
+		if (update != null && update + RULES_UPDATE_INTERVAL > SystemClock.elapsedRealtime()) {
 			return;
 		}
 		String postNumber = null;
@@ -71,28 +77,36 @@ public class FourchanChanPerformer extends ChanPerformer {
 				postNumber = post.getPostNumber();
 			}
 		}
-		HttpResponse response = null;
-		if (postNumber != null) {
-			FourchanChanLocator locator = FourchanChanLocator.get(this);
-			Uri uri = locator.createSysUri(boardName, "imgboard.php").buildUpon()
-					.appendQueryParameter("mode", "report").appendQueryParameter("no", postNumber).build();
-			response = new HttpRequest(uri, preset).setSuccessOnly(false)
-					.perform();
+		if (postNumber == null) {
+			return;
 		}
-		List<ReportReason> reportReasons = Collections.emptyList();
-		if (response != null) {
-			try (InputStream input = response.open()) {
-				reportReasons = new FourchanRulesParser().parse(input);
-			} catch (ParseException e) {
-				// Ignore
-			} catch (IOException e) {
-				throw response.fail(e);
+		// Only one caller per board makes the request, the others show threads without waiting for rules
+		if (rulesUpdates.putIfAbsent(boardName, true) == null) {
+			try {
+				updateBoardRules(preset, boardName, postNumber);
+			} finally {
+				rulesUpdates.remove(boardName);
 			}
 		}
+	}
+
+	private void updateBoardRules(HttpRequest.Preset preset, String boardName, String postNumber)
+			throws HttpException {
+		FourchanChanLocator locator = FourchanChanLocator.get(this);
+		Uri uri = locator.createSysUri(boardName, "imgboard.php").buildUpon()
+				.appendQueryParameter("mode", "report").appendQueryParameter("no", postNumber).build();
+		HttpResponse response = new HttpRequest(uri, preset).setSuccessOnly(false)
+				.perform();
+		List<ReportReason> reportReasons = Collections.emptyList();
+		try (InputStream input = response.open()) {
+			reportReasons = new FourchanRulesParser().parse(input);
+		} catch (ParseException e) {
+			// Ignore
+		} catch (IOException e) {
+			throw response.fail(e);
+		}
 		if (!reportReasons.isEmpty()) {
-			synchronized (lastRulesUpdate) {
-				lastRulesUpdate.put(boardName, SystemClock.elapsedRealtime());
-			}
+			lastRulesUpdate.put(boardName, SystemClock.elapsedRealtime());
 			FourchanChanConfiguration configuration = FourchanChanConfiguration.get(this);
 			configuration.updateReportingConfiguration(boardName, reportReasons);
 		}
@@ -162,6 +176,28 @@ public class FourchanChanPerformer extends ChanPerformer {
 		return new ReadThreadsResult(threads).setValidator(validator);
 	}
 
+	private static final int MAX_POSTS_CACHES = 10;
+
+	private final LinkedHashMap<String, FourchanModelMapper.PostsCache> postsCaches =
+			new LinkedHashMap<String, FourchanModelMapper.PostsCache>(MAX_POSTS_CACHES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, FourchanModelMapper.PostsCache> eldest) {
+			return size() > MAX_POSTS_CACHES;
+		}
+	};
+
+	private FourchanModelMapper.PostsCache obtainPostsCache(String boardName, String threadNumber) {
+		String key = boardName + "/" + threadNumber;
+		synchronized (postsCaches) {
+			FourchanModelMapper.PostsCache postsCache = postsCaches.get(key);
+			if (postsCache == null) {
+				postsCache = new FourchanModelMapper.PostsCache();
+				postsCaches.put(key, postsCache);
+			}
+			return postsCache;
+		}
+	}
+
 	@SuppressWarnings("SwitchStatementWithTooFewBranches")
 	@Override
 	public ReadPostsResult onReadPosts(ReadPostsData data) throws HttpException, InvalidResponseException {
@@ -169,12 +205,17 @@ public class FourchanChanPerformer extends ChanPerformer {
 		FourchanChanConfiguration configuration = FourchanChanConfiguration.get(this);
 		boolean handleMathTags = configuration.isMathTagsHandlingEnabled();
 		boolean tail = data.partialThreadLoading && data.lastPostNumber != null;
+		FourchanModelMapper.PostsCache postsCache = obtainPostsCache(data.boardName, data.threadNumber);
 		ArrayList<Post> posts = new ArrayList<>();
 		int uniquePosters = 0;
 		if (tail) {
 			Uri uri = locator.createApiUri(data.boardName, "thread", data.threadNumber + "-tail.json");
 			HttpResponse response = new HttpRequest(uri, data).setValidator(data.validator)
 					.setSuccessOnly(false).perform();
+			if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				// Nothing was posted since the last request, no need to check the full thread
+				throw new HttpException(HttpURLConnection.HTTP_NOT_MODIFIED, null);
+			}
 			if (response.getResponseCode() == HttpURLConnection.HTTP_OK) {
 				TRY: try (InputStream input = response.open();
 						JsonSerial.Reader reader = JsonSerial.reader(input)) {
@@ -203,13 +244,17 @@ public class FourchanChanPerformer extends ChanPerformer {
 								}
 								if (sincePostNumber != null && Integer.parseInt(data.lastPostNumber)
 										>= Integer.parseInt(sincePostNumber)) {
+									FourchanModelMapper.PostsCache.Update cacheUpdate = postsCache.startUpdate();
 									while (!reader.endStruct()) {
 										posts.add(FourchanModelMapper.createPost(reader,
-												locator, data.boardName, handleMathTags, null));
+												locator, data.boardName, handleMathTags, null, cacheUpdate));
 									}
-									return new ReadPostsResult(new Posts(posts).setUniquePosters(uniquePosters));
+									cacheUpdate.commit(false);
+									return new ReadPostsResult(new Posts(posts).setUniquePosters(uniquePosters))
+											.setValidator(response.getValidator());
 								} else {
-									// Load full thread
+									// Tail is the only partial response the API provides,
+									// load full thread and reuse posts which didn't change
 									break TRY;
 								}
 							}
@@ -235,15 +280,17 @@ public class FourchanChanPerformer extends ChanPerformer {
 				switch (reader.nextName()) {
 					case "posts": {
 						FourchanModelMapper.Extra extra = new FourchanModelMapper.Extra();
+						FourchanModelMapper.PostsCache.Update cacheUpdate = postsCache.startUpdate();
 						reader.startArray();
 						while (!reader.endStruct()) {
 							posts.add(FourchanModelMapper.createPost(reader,
-									locator, data.boardName, handleMathTags, extra));
+									locator, data.boardName, handleMathTags, extra, cacheUpdate));
 							if (extra != null) {
 								uniquePosters = extra.uniquePosters;
 								extra = null;
 							}
 						}
+						cacheUpdate.commit(true);
 						break;
 					}
 					default: {
@@ -252,7 +299,8 @@ public class FourchanChanPerformer extends ChanPerformer {
 					}
 				}
 			}
-			return new ReadPostsResult(new Posts(posts).setUniquePosters(uniquePosters)).setFullThread(true);
+			return new ReadPostsResult(new Posts(posts).setUniquePosters(uniquePosters)).setFullThread(true)
+					.setValidator(response.getValidator());
 		} catch (ParseException e) {
 			throw new InvalidResponseException(e);
 		} catch (IOException e) {
@@ -327,12 +375,48 @@ public class FourchanChanPerformer extends ChanPerformer {
 		}
 	}
 
-	@SuppressWarnings("SwitchStatementWithTooFewBranches")
-	@Override
-	public ReadBoardsResult onReadBoards(ReadBoardsData data) throws HttpException, InvalidResponseException {
+	private static class BoardsList {
+		public final List<Board> boards;
+		public final HttpValidator validator;
+
+		public BoardsList(List<Board> boards, HttpValidator validator) {
+			this.boards = boards;
+			this.validator = validator;
+		}
+	}
+
+	private static class BoardCategories {
+		public final Map<String, List<String>> categoryMap;
+		public final HttpValidator validator;
+
+		public BoardCategories(Map<String, List<String>> categoryMap, HttpValidator validator) {
+			this.categoryMap = categoryMap;
+			this.validator = validator;
+		}
+	}
+
+	private final Object boardsLock = new Object();
+	private BoardCategories boardCategories;
+	private BoardsList boardsList;
+
+	private Map<String, List<String>> readBoardCategories(HttpRequest.Preset preset) throws HttpException,
+			InvalidResponseException {
+		BoardCategories boardCategories;
+		synchronized (boardsLock) {
+			boardCategories = this.boardCategories;
+		}
 		FourchanChanLocator locator = FourchanChanLocator.get(this);
 		Uri uri = locator.buildPath();
-		HttpResponse response = new HttpRequest(uri, data).perform();
+		HttpResponse response;
+		try {
+			response = new HttpRequest(uri, preset)
+					.setValidator(boardCategories != null ? boardCategories.validator : null).perform();
+		} catch (HttpException e) {
+			if (boardCategories != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				return boardCategories.categoryMap;
+			}
+			throw e;
+		}
 		Map<String, List<String>> categoryMap;
 		try (InputStream input = response.open()) {
 			categoryMap = new FourchanBoardsParser(this).parse(input);
@@ -341,21 +425,32 @@ public class FourchanChanPerformer extends ChanPerformer {
 		} catch (IOException e) {
 			throw response.fail(e);
 		}
-		String uncategorized = "Uncategorized";
-		FourchanChanConfiguration configuration = FourchanChanConfiguration.get(this);
-		LinkedHashMap<String, ArrayList<Board>> boardsMap = new LinkedHashMap<>();
-		for (String title : categoryMap.keySet()) {
-			boardsMap.put(title, new ArrayList<>());
+		synchronized (boardsLock) {
+			this.boardCategories = new BoardCategories(categoryMap, response.getValidator());
 		}
-		boardsMap.put(uncategorized, new ArrayList<>());
-		HashMap<String, String> boardToCategory = new HashMap<>();
-		for (Map.Entry<String, List<String>> entry : categoryMap.entrySet()) {
-			for (String boardName : entry.getValue()) {
-				boardToCategory.put(boardName, entry.getKey());
+		return categoryMap;
+	}
+
+	@SuppressWarnings("SwitchStatementWithTooFewBranches")
+	private List<Board> readBoardsList(HttpRequest.Preset preset) throws HttpException, InvalidResponseException {
+		BoardsList boardsList;
+		synchronized (boardsLock) {
+			boardsList = this.boardsList;
+		}
+		FourchanChanLocator locator = FourchanChanLocator.get(this);
+		Uri uri = locator.createApiUri("boards.json");
+		HttpResponse response;
+		try {
+			response = new HttpRequest(uri, preset)
+					.setValidator(boardsList != null ? boardsList.validator : null).perform();
+		} catch (HttpException e) {
+			if (boardsList != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				return boardsList.boards;
 			}
+			throw e;
 		}
-		uri = locator.createApiUri("boards.json");
-		response = new HttpRequest(uri, data).perform();
+		FourchanChanConfiguration configuration = FourchanChanConfiguration.get(this);
+		ArrayList<Board> boards = new ArrayList<>();
 		try (InputStream input = response.open();
 				JsonSerial.Reader reader = JsonSerial.reader(input)) {
 			reader.startObject();
@@ -366,12 +461,7 @@ public class FourchanChanPerformer extends ChanPerformer {
 						while (!reader.endStruct()) {
 							Board board = configuration.updateBoard(reader);
 							if (board != null) {
-								String category = boardToCategory.get(board.getBoardName());
-								ArrayList<Board> boards = boardsMap.get(category);
-								if (boards == null) {
-									boards = boardsMap.get(uncategorized);
-								}
-								Objects.requireNonNull(boards).add(board);
+								boards.add(board);
 							}
 						}
 						break;
@@ -382,44 +472,354 @@ public class FourchanChanPerformer extends ChanPerformer {
 					}
 				}
 			}
-			ArrayList<BoardCategory> boardCategories = new ArrayList<>();
-			for (LinkedHashMap.Entry<String, ArrayList<Board>> entry : boardsMap.entrySet()) {
-				ArrayList<Board> boards = entry.getValue();
-				if (!boards.isEmpty()) {
-					Collections.sort(boards);
-					boardCategories.add(new BoardCategory(entry.getKey(), boards));
-				}
-			}
-			return new ReadBoardsResult(boardCategories);
 		} catch (ParseException e) {
 			throw new InvalidResponseException(e);
 		} catch (IOException e) {
 			throw response.fail(e);
 		}
+		synchronized (boardsLock) {
+			this.boardsList = new BoardsList(boards, response.getValidator());
+		}
+		return boards;
 	}
 
+	@Override
+	public ReadBoardsResult onReadBoards(ReadBoardsData data) throws HttpException, InvalidResponseException {
+		Map<String, List<String>> categoryMap = readBoardCategories(data);
+		String uncategorized = "Uncategorized";
+		LinkedHashMap<String, ArrayList<Board>> boardsMap = new LinkedHashMap<>();
+		for (String title : categoryMap.keySet()) {
+			boardsMap.put(title, new ArrayList<>());
+		}
+		boardsMap.put(uncategorized, new ArrayList<>());
+		HashMap<String, String> boardToCategory = new HashMap<>();
+		for (Map.Entry<String, List<String>> entry : categoryMap.entrySet()) {
+			for (String boardName : entry.getValue()) {
+				boardToCategory.put(boardName, entry.getKey());
+			}
+		}
+		for (Board board : readBoardsList(data)) {
+			String category = boardToCategory.get(board.getBoardName());
+			ArrayList<Board> boards = boardsMap.get(category);
+			if (boards == null) {
+				boards = boardsMap.get(uncategorized);
+			}
+			Objects.requireNonNull(boards).add(board);
+		}
+		ArrayList<BoardCategory> boardCategories = new ArrayList<>();
+		for (LinkedHashMap.Entry<String, ArrayList<Board>> entry : boardsMap.entrySet()) {
+			ArrayList<Board> boards = entry.getValue();
+			if (!boards.isEmpty()) {
+				Collections.sort(boards);
+				boardCategories.add(new BoardCategory(entry.getKey(), boards));
+			}
+		}
+		return new ReadBoardsResult(boardCategories);
+	}
+
+	private static class ArchiveList {
+		public final List<ThreadSummary> threadSummaries;
+		public final HttpValidator validator;
+		public final long time;
+
+		public ArchiveList(List<ThreadSummary> threadSummaries, HttpValidator validator, long time) {
+			this.threadSummaries = threadSummaries;
+			this.validator = validator;
+			this.time = time;
+		}
+	}
+
+	private static final int MAX_ARCHIVE_LISTS = 5;
+	private static final int ARCHIVE_LIST_FRESH_TIME = 60 * 1000;
+
 	private static final Pattern PATTERN_ARCHIVED_THREAD = Pattern.compile("<tr><td>(\\d+)</td>.*?" +
 			"<td class=\"teaser-col\">(.*?)</td>");
 
+	private final LinkedHashMap<String, ArchiveList> archiveLists =
+			new LinkedHashMap<String, ArchiveList>(MAX_ARCHIVE_LISTS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ArchiveList> eldest) {
+			return size() > MAX_ARCHIVE_LISTS;
+		}
+	};
+
+	// Teasers come with the archive page itself, so it is parsed only when the page has changed
+	private ArchiveList readArchiveList(HttpRequest.Preset preset, String boardName) throws HttpException {
+		ArchiveList archiveList;
+		synchronized (archiveLists) {
+			archiveList = archiveLists.get(boardName);
+		}
+		if (archiveList != null && SystemClock.elapsedRealtime() - archiveList.time < ARCHIVE_LIST_FRESH_TIME) {
+			return archiveList;
+		}
+		FourchanChanLocator locator = FourchanChanLocator.get(this);
+		Uri uri = locator.createBoardUri(boardName, 0).buildUpon().appendPath("archive").build();
+		HttpResponse response;
+		try {
+			response = new HttpRequest(uri, preset)
+					.setValidator(archiveList != null ? archiveList.validator : null).perform();
+		} catch (HttpException e) {
+			if (archiveList != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				archiveList = new ArchiveList(archiveList.threadSummaries, archiveList.validator,
+						SystemClock.elapsedRealtime());
+				synchronized (archiveLists) {
+					archiveLists.put(boardName, archiveList);
+				}
+				return archiveList;
+			}
+			throw e;
+		}
+		String responseText = response.readString();
+		ArrayList<ThreadSummary> threadSummaries = new ArrayList<>();
+		Matcher matcher = PATTERN_ARCHIVED_THREAD.matcher(responseText);
+		while (matcher.find()) {
+			threadSummaries.add(new ThreadSummary(boardName, matcher.group(1),
+					StringUtils.clearHtml(matcher.group(2))));
+		}
+		archiveList = new ArchiveList(threadSummaries, response.getValidator(), SystemClock.elapsedRealtime());
+		synchronized (archiveLists) {
+			archiveLists.put(boardName, archiveList);
+		}
+		return archiveList;
+	}
+
 	@Override
 	public ReadThreadSummariesResult onReadThreadSummaries(ReadThreadSummariesData data) throws HttpException,
 			InvalidResponseException {
 		if (data.type == ReadThreadSummariesData.TYPE_ARCHIVED_THREADS) {
-			FourchanChanLocator locator = FourchanChanLocator.get(this);
-			Uri uri = locator.createBoardUri(data.boardName, 0).buildUpon().appendPath("archive").build();
-			String responseText = new HttpRequest(uri, data).perform().readString();
-			ArrayList<ThreadSummary> threadSummaries = new ArrayList<>();
-			Matcher matcher = PATTERN_ARCHIVED_THREAD.matcher(responseText);
-			while (matcher.find()) {
-				threadSummaries.add(new ThreadSummary(data.boardName, matcher.group(1),
-						StringUtils.clearHtml(matcher.group(2))));
-			}
-			return new ReadThreadSummariesResult(threadSummaries);
+			// Cached list is shared between calls
+			return new ReadThreadSummariesResult(new ArrayList<>(readArchiveList(data, data.boardName)
+					.threadSummaries));
 		} else {
 			return super.onReadThreadSummaries(data);
 		}
 	}
 
+	private static class ThreadsIndex {
+		public final Map<String, Integer> postsCounts;
+		public final HttpValidator validator;
+		public final long time;
+
+		public ThreadsIndex(Map<String, Integer> postsCounts, HttpValidator validator, long time) {
+			this.postsCounts = postsCounts;
+			this.validator = validator;
+			this.time = time;
+		}
+	}
+
+	private static final int MAX_THREADS_INDEXES = 20;
+	private static final int THREADS_INDEX_FRESH_TIME = 15 * 1000;
+
+	private final HashMap<String, Object> threadsIndexLocks = new HashMap<>();
+
+	private final LinkedHashMap<String, ThreadsIndex> threadsIndexes =
+			new LinkedHashMap<String, ThreadsIndex>(MAX_THREADS_INDEXES, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ThreadsIndex> eldest) {
+			return size() > MAX_THREADS_INDEXES;
+		}
+	};
+
+	private ThreadsIndex readThreadsIndex(HttpRequest.Preset preset, String boardName)
+			throws HttpException, InvalidResponseException {
+		Object lock;
+		synchronized (threadsIndexLocks) {
+			lock = threadsIndexLocks.get(boardName);
+			if (lock == null) {
+				lock = new Object();
+				threadsIndexLocks.put(boardName, lock);
+			}
+		}
+		// Concurrent polls for the same board wait for a single threads.json request
+		synchronized (lock) {
+			ThreadsIndex threadsIndex;
+			synchronized (threadsIndexes) {
+				threadsIndex = threadsIndexes.get(boardName);
+			}
+			if (threadsIndex != null && SystemClock.elapsedRealtime() - threadsIndex.time <
+					THREADS_INDEX_FRESH_TIME) {
+				return threadsIndex;
+			}
+			FourchanChanLocator locator = FourchanChanLocator.get(this);
+			Uri uri = locator.createApiUri(boardName, "threads.json");
+			HttpResponse response;
+			try {
+				response = new HttpRequest(uri, preset)
+						.setValidator(threadsIndex != null ? threadsIndex.validator : null).perform();
+			} catch (HttpException e) {
+				if (threadsIndex != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					threadsIndex = new ThreadsIndex(threadsIndex.postsCounts, threadsIndex.validator,
+							SystemClock.elapsedRealtime());
+					synchronized (threadsIndexes) {
+						threadsIndexes.put(boardName, threadsIndex);
+					}
+					return threadsIndex;
+				}
+				throw e;
+			}
+			HashMap<String, Integer> postsCounts = new HashMap<>();
+			try (InputStream input = response.open();
+					JsonSerial.Reader reader = JsonSerial.reader(input)) {
+				reader.startArray();
+				while (!reader.endStruct()) {
+					reader.startObject();
+					while (!reader.endStruct()) {
+						switch (reader.nextName()) {
+							case "threads": {
+								reader.startArray();
+								while (!reader.endStruct()) {
+									String threadNumber = null;
+									int replies = 0;
+									reader.startObject();
+									while (!reader.endStruct()) {
+										switch (reader.nextName()) {
+											case "no": {
+												threadNumber = reader.nextString();
+												break;
+											}
+											case "replies": {
+												replies = reader.nextInt();
+												break;
+											}
+											default: {
+												reader.skip();
+												break;
+											}
+										}
+									}
+									if (threadNumber != null) {
+										postsCounts.put(threadNumber, replies + 1);
+									}
+								}
+								break;
+							}
+							default: {
+								reader.skip();
+								break;
+							}
+						}
+					}
+				}
+			} catch (ParseException e) {
+				throw new InvalidResponseException(e);
+			} catch (IOException e) {
+				throw response.fail(e);
+			}
+			threadsIndex = new ThreadsIndex(postsCounts, response.getValidator(), SystemClock.elapsedRealtime());
+			synchronized (threadsIndexes) {
+				threadsIndexes.put(boardName, threadsIndex);
+			}
+			return threadsIndex;
+		}
+	}
+
+	private static class ThreadPostsCount {
+		public final int postsCount;
+		public final boolean archived;
+		public final HttpValidator validator;
+
+		public ThreadPostsCount(int postsCount, boolean archived, HttpValidator validator) {
+			this.postsCount = postsCount;
+			this.archived = archived;
+			this.validator = validator;
+		}
+	}
+
+	private static final int MAX_THREAD_POSTS_COUNTS = 100;
+
+	private final LinkedHashMap<String, ThreadPostsCount> threadPostsCounts =
+			new LinkedHashMap<String, ThreadPostsCount>(MAX_THREAD_POSTS_COUNTS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ThreadPostsCount> eldest) {
+			return size() > MAX_THREAD_POSTS_COUNTS;
+		}
+	};
+
+	@SuppressWarnings("SwitchStatementWithTooFewBranches")
+	@Override
+	public ReadPostsCountResult onReadPostsCount(ReadPostsCountData data) throws HttpException,
+			InvalidResponseException {
+		Integer count = readThreadsIndex(data, data.boardName).postsCounts.get(data.threadNumber);
+		if (count != null) {
+			return new ReadPostsCountResult(count);
+		}
+		// Archived threads are not listed in threads.json, the replies count is taken from the thread itself
+		String key = data.boardName + "/" + data.threadNumber;
+		ThreadPostsCount threadPostsCount;
+		synchronized (threadPostsCounts) {
+			threadPostsCount = threadPostsCounts.get(key);
+		}
+		if (threadPostsCount != null && threadPostsCount.archived) {
+			// Archived threads never change
+			return new ReadPostsCountResult(threadPostsCount.postsCount);
+		}
+		FourchanChanLocator locator = FourchanChanLocator.get(this);
+		Uri uri = locator.createApiUri(data.boardName, "thread", data.threadNumber + ".json");
+		HttpResponse response;
+		try {
+			response = new HttpRequest(uri, data)
+					.setValidator(threadPostsCount != null ? threadPostsCount.validator : null).perform();
+		} catch (HttpException e) {
+			if (threadPostsCount != null && e.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				return new ReadPostsCountResult(threadPostsCount.postsCount);
+			}
+			throw e;
+		}
+		int postsCount = -1;
+		boolean archived = false;
+		try (InputStream input = response.open();
+				JsonSerial.Reader reader = JsonSerial.reader(input)) {
+			reader.startObject();
+			while (!reader.endStruct()) {
+				switch (reader.nextName()) {
+					case "posts": {
+						reader.startArray();
+						reader.startObject();
+						while (!reader.endStruct()) {
+							switch (reader.nextName()) {
+								case "replies": {
+									postsCount = reader.nextInt() + 1;
+									break;
+								}
+								case "archived": {
+									archived = reader.nextInt() != 0;
+									break;
+								}
+								default: {
+									reader.skip();
+									break;
+								}
+							}
+						}
+						if (postsCount < 0) {
+							throw new InvalidResponseException();
+						}
+						break;
+					}
+					default: {
+						reader.skip();
+						break;
+					}
+				}
+				if (postsCount >= 0) {
+					// Replies are not needed
+					break;
+				}
+			}
+			if (postsCount < 0) {
+				throw new InvalidResponseException();
+			}
+		} catch (ParseException e) {
+			throw new InvalidResponseException(e);
+		} catch (IOException e) {
+			throw response.fail(e);
+		}
+		synchronized (threadPostsCounts) {
+			threadPostsCounts.put(key, new ThreadPostsCount(postsCount, archived, response.getValidator()));
+		}
+		return new ReadPostsCountResult(postsCount);
+	}
+
 	@Override
 	public ReadContentResult onReadContent(ReadContentData data) throws HttpException, InvalidResponseException {
 		FourchanChanLocator locator = FourchanChanLocator.get(this);
@@ -552,40 +952,22 @@ public class FourchanChanPerformer extends ChanPerformer {
 		FourchanChanLocator locator = FourchanChanLocator.get(this);
 		ReadCaptchaResult result;
 		if (FourchanChanConfiguration.CAPTCHA_TYPE_4CHAN_CAPTCHA.equals(captchaType)) {
+			String threadNumber = data.requirement == null ? data.threadNumber : "1";
+			boolean prewarm = data.requirement == null;
 			if (data.mayShowLoadButton) {
 				return new ReadCaptchaResult(CaptchaState.NEED_LOAD, null);
 			}
-			String threadNumber = data.requirement == null ? data.threadNumber : "1";
-			Uri.Builder builder = locator.createSysUri("captcha").buildUpon()
-					.appendQueryParameter("board", data.boardName);
-			if (threadNumber != null) {
-				builder.appendQueryParameter("thread_id", threadNumber);
-			}
-			String captchaTicket = getCaptchaTicket();
-			if (captchaTicket != null) {
-				builder.appendQueryParameter("ticket", captchaTicket);
-			}
-			Uri uri = builder.build();
 			String challenge;
 			Bitmap image;
 			Bitmap background;
-			String fourchanPassCookie = getFourchanPassCookie(configuration, data.boardName);
+			JSONObject jsonObject = prewarm ? takePrewarmedCaptcha(data.boardName, threadNumber) : null;
 			while (true) {
 				try {
-					JSONObject jsonObject = new JSONObject(new HttpRequest(uri, data)
-							.addCookie(COOKIE_FOURCHAN_PASS, fourchanPassCookie)
-							.perform()
-							.readString());
-					String newCaptchaTicket = jsonObject.optString("ticket");
-					if (!newCaptchaTicket.isEmpty()) {
-						saveCaptchaTicket(newCaptchaTicket);
+					if (jsonObject == null) {
+						jsonObject = readCaptchaJson(data, data.boardName, threadNumber);
 					}
-					boolean captchaOnCooldown = "You have to wait a while before doing this again".equals(jsonObject.optString("error"));
-					boolean captchaTicketOnCooldown = !captchaOnCooldown && jsonObject.has("pcd");
-					if (captchaOnCooldown || captchaTicketOnCooldown) {
-						String cooldownFieldName = captchaOnCooldown ? "cd" : "pcd";
-						int cooldownSeconds = jsonObject.optInt(cooldownFieldName, -1);
-						if (cooldownSeconds == -1) throw new HttpException(0, null);
+					int cooldownSeconds = getCaptchaCooldown(jsonObject);
+					if (cooldownSeconds >= 0) {
 						int reasonableCooldownWaitSeconds = 10;
 						if (cooldownSeconds <= reasonableCooldownWaitSeconds) {
 							try {
@@ -597,7 +979,12 @@ public class FourchanChanPerformer extends ChanPerformer {
 							} catch (InterruptedException e) {
 								throw new HttpException(0, null);
 							}
+							jsonObject = null;
 						} else {
+							if (prewarm && cooldownSeconds <= CAPTCHA_PREWARM_MAX_COOLDOWN) {
+								// Have the challenge ready by the time the cooldown is over
+								requestCaptchaPrewarm(data.boardName, threadNumber, (cooldownSeconds + 1) * 1000L);
+							}
 							throw new HttpException(0, configuration.getResources().getQuantityString(R.plurals.capthca_cooldown_message__format, cooldownSeconds, cooldownSeconds));
 						}
 					} else {
@@ -634,19 +1021,46 @@ public class FourchanChanPerformer extends ChanPerformer {
 					throw new InvalidResponseException(new Exception("Invalid image sizes"));
 				}
 			}
-			int resultOffset = 0;
+			Bitmap resultImage = null;
 			if (background != null) {
-				// Use user-driven binary search to find the offset for the most readable image
 				String description = configuration.getResources().getString(R.string.select_the_most_readable_captcha);
-				Integer offset = FourchanCaptchaUtils.binarySearchOffset(image, background, 9, centerOffset,
-						images -> requireUserImageSingleChoice(-1, images, description, null));
-				if (offset != null) {
-					resultOffset = offset;
-				} else {
-					return new ReadCaptchaResult(CaptchaState.NEED_LOAD, null);
+				// Offer the best estimated offsets first, so the captcha is usually confirmed in a single step
+				int[] offsets = FourchanCaptchaUtils.estimateOffsets(image, background, 3);
+				if (offsets.length > 0) {
+					Bitmap[] candidates = new Bitmap[offsets.length];
+					try {
+						for (int i = 0; i < offsets.length; i++) {
+							candidates[i] = FourchanCaptchaUtils.create(image, background, offsets[i]);
+						}
+						Integer index = requireUserImageSingleChoice(-1, Arrays.copyOf(candidates, offsets.length),
+								description, null);
+						if (index == null) {
+							return new ReadCaptchaResult(CaptchaState.NEED_LOAD, null);
+						} else if (index >= 0 && index < offsets.length) {
+							resultImage = candidates[index];
+							candidates[index] = null;
+						}
+					} finally {
+						for (Bitmap candidate : candidates) {
+							if (candidate != null) {
+								candidate.recycle();
+							}
+						}
+					}
 				}
+				if (resultImage == null) {
+					// Use user-driven binary search to find the offset for the most readable image
+					Integer offset = FourchanCaptchaUtils.binarySearchOffset(image, background, 9, centerOffset,
+							images -> requireUserImageSingleChoice(-1, images, description, null));
+					if (offset != null) {
+						resultImage = FourchanCaptchaUtils.create(image, background, offset);
+					} else {
+						return new ReadCaptchaResult(CaptchaState.NEED_LOAD, null);
+					}
+				}
+			} else {
+				resultImage = FourchanCaptchaUtils.create(image, null, 0);
 			}
-			Bitmap resultImage = FourchanCaptchaUtils.create(image, background, resultOffset);
 			CaptchaData captchaData = new CaptchaData();
 			captchaData.put(CAPTCHA_DATA_KEY_TYPE, captchaType);
 			captchaData.put(CaptchaData.CHALLENGE, challenge);
@@ -671,6 +1085,165 @@ public class FourchanChanPerformer extends ChanPerformer {
 		return result;
 	}
 
+	private JSONObject readCaptchaJson(HttpRequest.Preset preset, String boardName, String threadNumber)
+			throws HttpException, InvalidResponseException {
+		FourchanChanConfiguration configuration = FourchanChanConfiguration.get(this);
+		FourchanChanLocator locator = FourchanChanLocator.get(this);
+		Uri.Builder builder = locator.createSysUri("captcha").buildUpon()
+				.appendQueryParameter("board", boardName);
+		if (threadNumber != null) {
+			builder.appendQueryParameter("thread_id", threadNumber);
+		}
+		String captchaTicket = getCaptchaTicket();
+		if (captchaTicket != null) {
+			builder.appendQueryParameter("ticket", captchaTicket);
+		}
+		Uri uri = builder.build();
+		String fourchanPassCookie = getFourchanPassCookie(configuration, boardName);
+		try {
+			JSONObject jsonObject = new JSONObject(new HttpRequest(uri, preset)
+					.addCookie(COOKIE_FOURCHAN_PASS, fourchanPassCookie)
+					.perform()
+					.readString());
+			String newCaptchaTicket = jsonObject.optString("ticket");
+			if (!newCaptchaTicket.isEmpty()) {
+				saveCaptchaTicket(newCaptchaTicket);
+			}
+			return jsonObject;
+		} catch (JSONException e) {
+			throw new InvalidResponseException(e);
+		}
+	}
+
+	private static int getCaptchaCooldown(JSONObject jsonObject) throws HttpException {
+		boolean captchaOnCooldown = "You have to wait a while before doing this again".equals(jsonObject.optString("error"));
+		boolean captchaTicketOnCooldown = !captchaOnCooldown && jsonObject.has("pcd");
+		if (captchaOnCooldown || captchaTicketOnCooldown) {
+			String cooldownFieldName = captchaOnCooldown ? "cd" : "pcd";
+			int cooldownSeconds = jsonObject.optInt(cooldownFieldName, -1);
+			if (cooldownSeconds == -1) throw new HttpException(0, null);
+			return cooldownSeconds;
+		}
+		return -1;
+	}
+
+	private static class PrewarmedCaptcha {
+		public final String key;
+		public final JSONObject jsonObject;
+		public final long expireTime;
+
+		public PrewarmedCaptcha(String key, JSONObject jsonObject, long expireTime) {
+			this.key = key;
+			this.jsonObject = jsonObject;
+			this.expireTime = expireTime;
+		}
+	}
+
+	private static final int CAPTCHA_DEFAULT_TTL = 120;
+	private static final int CAPTCHA_PREWARM_MAX_COOLDOWN = 300;
+	private static final long CAPTCHA_PREWARM_MARGIN = 15 * 1000;
+
+	// Prewarm starts after the captcha request which has seen the cooldown is finished
+	private static final HttpRequest.Preset CAPTCHA_PREWARM_PRESET = new HttpRequest.Preset() {};
+
+	private final Object captchaPrewarmLock = new Object();
+	private final ScheduledThreadPoolExecutor captchaPrewarmExecutor = createCaptchaPrewarmExecutor();
+	private PrewarmedCaptcha prewarmedCaptcha;
+	private String captchaPrewarmKey;
+	private ScheduledFuture<?> captchaPrewarmFuture;
+
+	private static ScheduledThreadPoolExecutor createCaptchaPrewarmExecutor() {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+		executor.allowCoreThreadTimeOut(true);
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+
+	private static String getCaptchaPrewarmKey(String boardName, String threadNumber) {
+		return boardName + "/" + threadNumber;
+	}
+
+	private JSONObject takePrewarmedCaptcha(String boardName, String threadNumber) throws HttpException {
+		String key = getCaptchaPrewarmKey(boardName, threadNumber);
+		ScheduledFuture<?> runningFuture = null;
+		synchronized (captchaPrewarmLock) {
+			if (captchaPrewarmFuture != null && !captchaPrewarmFuture.isDone() && key.equals(captchaPrewarmKey)) {
+				if (captchaPrewarmFuture.getDelay(TimeUnit.MILLISECONDS) > 0) {
+					// Every challenge request starts a new cooldown, so the pending prewarm is dropped
+					captchaPrewarmFuture.cancel(false);
+					captchaPrewarmFuture = null;
+				} else {
+					runningFuture = captchaPrewarmFuture;
+				}
+			}
+		}
+		if (runningFuture != null) {
+			// Wait for the challenge which is being loaded instead of requesting another one
+			try {
+				runningFuture.get();
+			} catch (CancellationException | ExecutionException e) {
+				// Load the challenge on demand
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new HttpException(0, null);
+			}
+		}
+		synchronized (captchaPrewarmLock) {
+			PrewarmedCaptcha prewarmedCaptcha = this.prewarmedCaptcha;
+			// Challenge can be solved only once
+			this.prewarmedCaptcha = null;
+			if (prewarmedCaptcha != null && prewarmedCaptcha.key.equals(key) &&
+					SystemClock.elapsedRealtime() < prewarmedCaptcha.expireTime) {
+				return prewarmedCaptcha.jsonObject;
+			}
+			return null;
+		}
+	}
+
+	private void requestCaptchaPrewarm(String boardName, String threadNumber, long delay) {
+		String key = getCaptchaPrewarmKey(boardName, threadNumber);
+		synchronized (captchaPrewarmLock) {
+			if (prewarmedCaptcha != null && prewarmedCaptcha.key.equals(key) &&
+					SystemClock.elapsedRealtime() + delay < prewarmedCaptcha.expireTime) {
+				return;
+			}
+			if (captchaPrewarmFuture != null && !captchaPrewarmFuture.isDone()) {
+				if (key.equals(captchaPrewarmKey) && captchaPrewarmFuture.getDelay(TimeUnit.MILLISECONDS) <= delay) {
+					return;
+				}
+				captchaPrewarmFuture.cancel(false);
+			}
+			captchaPrewarmKey = key;
+			captchaPrewarmFuture = captchaPrewarmExecutor.schedule(() -> prewarmCaptcha(boardName, threadNumber),
+					delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	// Loads a single challenge per request, an unused challenge expires and is not replaced
+	private void prewarmCaptcha(String boardName, String threadNumber) {
+		JSONObject jsonObject;
+		try {
+			jsonObject = readCaptchaJson(CAPTCHA_PREWARM_PRESET, boardName, threadNumber);
+			if (getCaptchaCooldown(jsonObject) >= 0) {
+				// Cooldown will be shown when the user loads the captcha
+				return;
+			}
+		} catch (HttpException | InvalidResponseException e) {
+			// Captcha will be loaded on demand
+			return;
+		}
+		if (jsonObject.has("challenge")) {
+			long lifetime = jsonObject.optInt("ttl", CAPTCHA_DEFAULT_TTL) * 1000L - CAPTCHA_PREWARM_MARGIN;
+			if (lifetime > 0) {
+				synchronized (captchaPrewarmLock) {
+					prewarmedCaptcha = new PrewarmedCaptcha(getCaptchaPrewarmKey(boardName, threadNumber),
+							jsonObject, SystemClock.elapsedRealtime() + lifetime);
+				}
+			}
+		}
+	}
+
 	private static final String CAPTCHA_TICKET_KEY = "captcha_ticket";
 
 	private void saveCaptchaTicket(String captchaTicket) {
@@ -11,6 +11,8 @@ import chan.util.CommonUtils;
 import chan.util.StringUtils;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.regex.Pattern;
 
@@ -25,9 +27,84 @@ public class FourchanModelMapper {
 		private int images;
 	}
 
+	private static final long FINGERPRINT_OFFSET = 0xcbf29ce484222325L;
+	private static final long FINGERPRINT_PRIME = 0x100000001b3L;
+
+	// FNV-1a over the raw field values, used to detect unchanged posts without mapping them again
+	private static long fingerprint(long fingerprint, String value) {
+		if (value == null) {
+			return (fingerprint ^ 0xffff) * FINGERPRINT_PRIME;
+		}
+		for (int i = 0, length = value.length(); i < length; i++) {
+			fingerprint = (fingerprint ^ value.charAt(i)) * FINGERPRINT_PRIME;
+		}
+		return (fingerprint ^ 0xfffe) * FINGERPRINT_PRIME;
+	}
+
+	private static long fingerprint(long fingerprint, long value) {
+		for (int i = 0; i < 8; i++) {
+			fingerprint = (fingerprint ^ (value & 0xff)) * FINGERPRINT_PRIME;
+			value >>>= 8;
+		}
+		return fingerprint;
+	}
+
+	public static class PostsCache {
+		private static class Entry {
+			public final long fingerprint;
+			public final Post post;
+
+			public Entry(long fingerprint, Post post) {
+				this.fingerprint = fingerprint;
+				this.post = post;
+			}
+		}
+
+		public class Update {
+			private final HashMap<String, Entry> entries = new HashMap<>();
+
+			private Post get(String postNumber, long fingerprint) {
+				return PostsCache.this.get(postNumber, fingerprint);
+			}
+
+			public void commit(boolean fullThread) {
+				update(entries, fullThread);
+			}
+		}
+
+		private HashMap<String, Entry> entries = new HashMap<>();
+
+		public Update startUpdate() {
+			return new Update();
+		}
+
+		private synchronized Post get(String postNumber, long fingerprint) {
+			Entry entry = entries.get(postNumber);
+			return entry != null && entry.fingerprint == fingerprint ? entry.post : null;
+		}
+
+		private synchronized void update(HashMap<String, Entry> entries, boolean fullThread) {
+			if (fullThread) {
+				// Drop deleted posts
+				this.entries = entries;
+			} else {
+				this.entries.putAll(entries);
+			}
+		}
+	}
+
 	public static Post createPost(JsonSerial.Reader reader, FourchanChanLocator locator,
 			String boardName, boolean handleMathTags, Extra extra) throws IOException, ParseException {
+		return createPost(reader, locator, boardName, handleMathTags, extra, null);
+	}
+
+	public static Post createPost(JsonSerial.Reader reader, FourchanChanLocator locator,
+			String boardName, boolean handleMathTags, Extra extra, PostsCache.Update cacheUpdate)
+			throws IOException, ParseException {
 		Post post = new Post();
+		String name = null;
+		String subject = null;
+		String comment = null;
 		String country = null;
 		String countryName = null;
 		String boardFlag = null;
@@ -38,6 +115,7 @@ public class FourchanModelMapper {
 		int size = -1;
 		int width = 0;
 		int height = 0;
+		long fingerprint = fingerprint(FINGERPRINT_OFFSET, handleMathTags ? 1 : 0);
 
 		reader.startObject();
 		while (!reader.endStruct()) {
@@ -48,41 +126,56 @@ public class FourchanModelMapper {
 				}
 				case "resto": {
 					String resto = reader.nextString();
+					fingerprint = fingerprint(fingerprint, resto);
 					if (!"0".equals(resto)) {
 						post.setParentPostNumber(resto);
 					}
 					break;
 				}
 				case "time": {
-					post.setTimestamp(reader.nextLong() * 1000L);
+					long time = reader.nextLong();
+					fingerprint = fingerprint(fingerprint, time);
+					post.setTimestamp(time * 1000L);
 					break;
 				}
 				case "sticky": {
-					post.setSticky(reader.nextBoolean());
+					boolean sticky = reader.nextBoolean();
+					fingerprint = fingerprint(fingerprint, sticky ? 1 : 2);
+					post.setSticky(sticky);
 					break;
 				}
 				case "closed": {
-					post.setClosed(reader.nextBoolean());
+					boolean closed = reader.nextBoolean();
+					fingerprint = fingerprint(fingerprint, closed ? 3 : 4);
+					post.setClosed(closed);
 					break;
 				}
 				case "archived": {
-					post.setArchived(reader.nextBoolean());
+					boolean archived = reader.nextBoolean();
+					fingerprint = fingerprint(fingerprint, archived ? 5 : 6);
+					post.setArchived(archived);
 					break;
 				}
 				case "name": {
-					post.setName(StringUtils.clearHtml(reader.nextString()).trim());
+					name = reader.nextString();
+					fingerprint = fingerprint(fingerprint, name);
 					break;
 				}
 				case "trip": {
-					post.setTripcode(reader.nextString());
+					String tripcode = reader.nextString();
+					fingerprint = fingerprint(fingerprint, tripcode);
+					post.setTripcode(tripcode);
 					break;
 				}
 				case "id": {
-					post.setIdentifier(reader.nextString());
+					String identifier = reader.nextString();
+					fingerprint = fingerprint(fingerprint, identifier);
+					post.setIdentifier(identifier);
 					break;
 				}
 				case "capcode": {
 					String capcode = reader.nextString();
+					fingerprint = fingerprint(fingerprint, capcode);
 					if ("admin".equals(capcode) || "admin_highlight".equals(capcode)) {
 						post.setCapcode("Admin");
 					} else if ("mod".equals(capcode)) {
@@ -95,75 +188,63 @@ public class FourchanModelMapper {
 					break;
 				}
 				case "sub": {
-					post.setSubject(StringUtils.clearHtml(reader.nextString()).trim());
+					subject = reader.nextString();
+					fingerprint = fingerprint(fingerprint, subject);
 					break;
 				}
 				case "com": {
-					StringBuilder builder = new StringBuilder(reader.nextString());
-					while (true) {
-						int start = builder.indexOf("<wbr");
-						if (start < 0) {
-							break;
-						}
-						int end = builder.indexOf(">", start) + 1;
-						if (end > start) {
-							builder.delete(start, end);
-						} else {
-							break;
-						}
-					}
-					int exifAbbr = builder.indexOf("<span class=\"abbr\">[EXIF data available. Click");
-					if (exifAbbr >= 0) {
-						builder.setLength(exifAbbr);
-					}
-					String com = StringUtils.linkify(builder.toString());
-					if (handleMathTags && (com.contains("[math]") || com.contains("[eqn]"))) {
-						com = StringUtils.replaceAll(com, PATTERN_MATH, matcher -> "<a href=\"" +
-								locator.buildMathUri(StringUtils.clearHtml(matcher.group(2))).toString()
-										.replaceAll("\"", "&quot;") + "\">" + StringUtils.clearHtml(matcher.group(2))
-								.replaceAll("<", "&lt;").replaceAll(">", "&gt;") + "</a>");
-					}
-					post.setComment(com);
+					comment = reader.nextString();
+					fingerprint = fingerprint(fingerprint, comment);
 					break;
 				}
 				case "country": {
 					country = reader.nextString();
+					fingerprint = fingerprint(fingerprint, country);
 					break;
 				}
 				case "country_name": {
 					countryName = reader.nextString();
+					fingerprint = fingerprint(fingerprint, countryName);
 					break;
 				}
 				case "board_flag": {
 					boardFlag = reader.nextString();
+					fingerprint = fingerprint(fingerprint, boardFlag);
 					break;
 				}
 				case "flag_name": {
 					boardFlagName = reader.nextString();
+					fingerprint = fingerprint(fingerprint, boardFlagName);
 					break;
 				}
 				case "tim": {
 					tim = reader.nextString();
+					fingerprint = fingerprint(fingerprint, tim);
 					break;
 				}
 				case "filename": {
-					filename = StringUtils.clearHtml(reader.nextString());
+					filename = reader.nextString();
+					fingerprint = fingerprint(fingerprint, filename);
 					break;
 				}
 				case "ext": {
 					ext = reader.nextString();
+					fingerprint = fingerprint(fingerprint, ext);
 					break;
 				}
 				case "fsize": {
 					size = reader.nextInt();
+					fingerprint = fingerprint(fingerprint, size);
 					break;
 				}
 				case "w": {
 					width = reader.nextInt();
+					fingerprint = fingerprint(fingerprint, width);
 					break;
 				}
 				case "h": {
 					height = reader.nextInt();
+					fingerprint = fingerprint(fingerprint, height);
 					break;
 				}
 				case "unique_ips": {
@@ -208,6 +289,23 @@ public class FourchanModelMapper {
 			}
 		}
 
+		String postNumber = post.getPostNumber();
+		if (cacheUpdate != null && postNumber != null) {
+			Post cachedPost = cacheUpdate.get(postNumber, fingerprint);
+			if (cachedPost != null) {
+				cacheUpdate.entries.put(postNumber, new PostsCache.Entry(fingerprint, cachedPost));
+				return cachedPost;
+			}
+		}
+		if (name != null) {
+			post.setName(StringUtils.clearHtml(name).trim());
+		}
+		if (subject != null) {
+			post.setSubject(StringUtils.clearHtml(subject).trim());
+		}
+		if (comment != null) {
+			post.setComment(transformComment(comment, locator, handleMathTags));
+		}
 		if (CommonUtils.equals(post.getIdentifier(), post.getCapcode())) {
 			post.setIdentifier(null);
 		}
@@ -233,12 +331,88 @@ public class FourchanModelMapper {
 			attachment.setHeight(height);
 			attachment.setFileUri(locator, locator.buildAttachmentPath(boardName, tim + ext));
 			attachment.setThumbnailUri(locator, locator.buildAttachmentPath(boardName, tim + "s.jpg"));
-			attachment.setOriginalName(filename);
+			attachment.setOriginalName(filename != null ? StringUtils.clearHtml(filename) : null);
 			post.setAttachments(attachment);
 		}
+		if (cacheUpdate != null && postNumber != null) {
+			cacheUpdate.entries.put(postNumber, new PostsCache.Entry(fingerprint, post));
+		}
 		return post;
 	}
 
+	private static final String COMMENT_WBR = "<wbr";
+	private static final String COMMENT_EXIF = "<span class=\"abbr\">[EXIF data available. Click";
+	private static final String COMMENT_MATH = "[math]";
+	private static final String COMMENT_EQN = "[eqn]";
+
+	// Strips <wbr> tags, cuts the EXIF block and looks for math tags in a single pass.
+	// The first character of every searched string doesn't occur in the rest of it,
+	// so each match only needs a counter of matched characters.
+	private static String transformComment(String comment, FourchanChanLocator locator, boolean handleMathTags) {
+		int length = comment.length();
+		StringBuilder builder = new StringBuilder(length);
+		boolean stripWbr = true;
+		int exifMatched = 0;
+		int mathMatched = 0;
+		int eqnMatched = 0;
+		// Matching state before each '<' in the output, restored when a <wbr> tag is stripped
+		int[] tagStates = null;
+		int tagsCount = 0;
+		boolean hasMath = false;
+		int i = 0;
+		while (i < length) {
+			char c = comment.charAt(i++);
+			if (c == '<') {
+				if (tagStates == null) {
+					tagStates = new int[16];
+				} else if (tagsCount == tagStates.length) {
+					tagStates = Arrays.copyOf(tagStates, tagsCount * 2);
+				}
+				tagStates[tagsCount++] = exifMatched << 16 | mathMatched << 8 | eqnMatched;
+			}
+			builder.append(c);
+			int builderLength = builder.length();
+			// Check the output rather than the input, stripping a tag may join a new one
+			if (stripWbr && c == 'r' && builderLength >= COMMENT_WBR.length() &&
+					builder.charAt(builderLength - 4) == '<' && builder.charAt(builderLength - 3) == 'w' &&
+					builder.charAt(builderLength - 2) == 'b') {
+				int end = comment.indexOf('>', i);
+				if (end >= 0) {
+					builder.setLength(builderLength - COMMENT_WBR.length());
+					int state = tagStates[--tagsCount];
+					exifMatched = state >>> 16;
+					mathMatched = (state >>> 8) & 0xff;
+					eqnMatched = state & 0xff;
+					i = end + 1;
+					continue;
+				}
+				// Unclosed tag, keep the rest as is
+				stripWbr = false;
+			}
+			exifMatched = c == COMMENT_EXIF.charAt(exifMatched) ? exifMatched + 1 : c == '<' ? 1 : 0;
+			if (exifMatched == COMMENT_EXIF.length()) {
+				builder.setLength(builderLength - COMMENT_EXIF.length());
+				break;
+			}
+			mathMatched = c == COMMENT_MATH.charAt(mathMatched) ? mathMatched + 1 : c == '[' ? 1 : 0;
+			eqnMatched = c == COMMENT_EQN.charAt(eqnMatched) ? eqnMatched + 1 : c == '[' ? 1 : 0;
+			if (mathMatched == COMMENT_MATH.length() || eqnMatched == COMMENT_EQN.length()) {
+				hasMath = true;
+				mathMatched = 0;
+				eqnMatched = 0;
+			}
+		}
+		String com = StringUtils.linkify(builder.toString());
+		// Linkify only wraps the existing text, so it can't add math tags
+		if (handleMathTags && hasMath) {
+			com = StringUtils.replaceAll(com, PATTERN_MATH, matcher -> "<a href=\"" +
+					locator.buildMathUri(StringUtils.clearHtml(matcher.group(2))).toString()
+							.replaceAll("\"", "&quot;") + "\">" + StringUtils.clearHtml(matcher.group(2))
+					.replaceAll("<", "&lt;").replaceAll(">", "&gt;") + "</a>");
+		}
+		return com;
+	}
+
 	@SuppressWarnings("SwitchStatementWithTooFewBranches")
 	public static Posts createThread(JsonSerial.Reader reader, FourchanChanLocator locator, String boardName,
 			boolean handleMathTags, boolean fromCatalog) throws IOException, ParseException {